@@ -4,13 +4,16 @@ import org.glassfish.hk2.utilities.binding.AbstractBinder;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.server.ServerProperties;
 
+import rs.raf.demo.repositories.user.CachingUserRepository;
 import rs.raf.demo.repositories.user.MySqlUserRepository;
 import rs.raf.demo.repositories.user.UserRepository;
 import rs.raf.demo.repositories.category.CategoryRepository;
+import rs.raf.demo.repositories.category.CachingCategoryRepository;
 import rs.raf.demo.repositories.category.MySqlCategoryRepository;
 import rs.raf.demo.repositories.event.EventRepository;
 import rs.raf.demo.repositories.event.MySqlEventRepository;
 import rs.raf.demo.repositories.tag.TagRepository;
+import rs.raf.demo.repositories.tag.CachingTagRepository;
 import rs.raf.demo.repositories.tag.MySqlTagRepository;
 import rs.raf.demo.repositories.eventTag.EventTagRepository;
 import rs.raf.demo.repositories.eventTag.MySqlEventTagRepository;
@@ -18,15 +21,36 @@ import rs.raf.demo.repositories.comment.CommentRepository;
 import rs.raf.demo.repositories.comment.MySqlCommentRepository;
 import rs.raf.demo.repositories.rsvp.RSVPRepository;
 import rs.raf.demo.repositories.rsvp.MySqlRSVPRepository;
+import rs.raf.demo.repositories.waitlist.WaitlistRepository;
+import rs.raf.demo.repositories.waitlist.MySqlWaitlistRepository;
+import rs.raf.demo.repositories.visitor.VisitorSketchRepository;
+import rs.raf.demo.repositories.visitor.MySqlVisitorSketchRepository;
+import rs.raf.demo.repositories.visitor.VisitorReactionRepository;
+import rs.raf.demo.repositories.visitor.MySqlVisitorReactionRepository;
 
 import rs.raf.demo.services.UserService;
 import rs.raf.demo.services.CategoryService;
 import rs.raf.demo.services.EventService;
+import rs.raf.demo.services.EventPageService;
+import rs.raf.demo.services.EventHydrator;
 import rs.raf.demo.services.TagService;
 import rs.raf.demo.services.CommentService;
 import rs.raf.demo.services.RSVPService;
+import rs.raf.demo.services.MonitoringService;
+import rs.raf.demo.services.VisitorService;
 
 import rs.raf.demo.config.JacksonConfig;
+import rs.raf.demo.admission.FlashSignupQueue;
+import rs.raf.demo.admission.WaitlistPromoter;
+import rs.raf.demo.counters.EventLeaderboards;
+import rs.raf.demo.counters.ReactionCounter;
+import rs.raf.demo.counters.RSVPCounts;
+import rs.raf.demo.counters.ViewCounter;
+import rs.raf.demo.counters.VisitorReactions;
+import rs.raf.demo.counters.VisitorSketches;
+import rs.raf.demo.cache.PrincipalCache;
+import rs.raf.demo.search.EventSearchIndex;
+import rs.raf.demo.search.TagSimilarityIndex;
 
 import javax.inject.Singleton;
 import javax.ws.rs.ApplicationPath;
@@ -40,20 +64,42 @@ public class HelloApplication extends ResourceConfig {
         AbstractBinder binder = new AbstractBinder() {
             @Override
             protected void configure() {
-                this.bind(MySqlUserRepository.class).to(UserRepository.class).in(Singleton.class);
-                this.bind(MySqlCategoryRepository.class).to(CategoryRepository.class).in(Singleton.class);
+                this.bindAsContract(MySqlUserRepository.class).in(Singleton.class);
+                this.bind(CachingUserRepository.class).to(UserRepository.class).to(CachingUserRepository.class).in(Singleton.class);
+                this.bindAsContract(MySqlCategoryRepository.class).in(Singleton.class);
+                this.bind(CachingCategoryRepository.class).to(CategoryRepository.class).to(CachingCategoryRepository.class).in(Singleton.class);
                 this.bind(MySqlEventRepository.class).to(EventRepository.class).in(Singleton.class);
-                this.bind(MySqlTagRepository.class).to(TagRepository.class).in(Singleton.class);
+                this.bindAsContract(MySqlTagRepository.class).in(Singleton.class);
+                this.bind(CachingTagRepository.class).to(TagRepository.class).to(CachingTagRepository.class).in(Singleton.class);
                 this.bind(MySqlEventTagRepository.class).to(EventTagRepository.class).in(Singleton.class);
                 this.bind(MySqlCommentRepository.class).to(CommentRepository.class).in(Singleton.class);
                 this.bind(MySqlRSVPRepository.class).to(RSVPRepository.class).in(Singleton.class);
+                this.bind(MySqlWaitlistRepository.class).to(WaitlistRepository.class).in(Singleton.class);
+                this.bind(MySqlVisitorSketchRepository.class).to(VisitorSketchRepository.class).in(Singleton.class);
+                this.bind(MySqlVisitorReactionRepository.class).to(VisitorReactionRepository.class).in(Singleton.class);
+
+                this.bindAsContract(PrincipalCache.class).in(Singleton.class);
+                this.bindAsContract(EventSearchIndex.class).in(Singleton.class);
+                this.bindAsContract(TagSimilarityIndex.class).in(Singleton.class);
+                this.bindAsContract(ViewCounter.class).in(Singleton.class);
+                this.bindAsContract(VisitorSketches.class).in(Singleton.class);
+                this.bindAsContract(VisitorReactions.class).in(Singleton.class);
+                this.bindAsContract(ReactionCounter.class).in(Singleton.class);
+                this.bindAsContract(EventLeaderboards.class).in(Singleton.class);
+                this.bindAsContract(RSVPCounts.class).in(Singleton.class);
+                this.bindAsContract(FlashSignupQueue.class).in(Singleton.class);
+                this.bindAsContract(WaitlistPromoter.class).in(Singleton.class);
 
                 this.bindAsContract(UserService.class);
                 this.bindAsContract(CategoryService.class);
-                this.bindAsContract(EventService.class);
+                this.bindAsContract(EventService.class).in(Singleton.class);
+                this.bindAsContract(EventPageService.class).in(Singleton.class);
+                this.bindAsContract(EventHydrator.class);
                 this.bindAsContract(TagService.class);
                 this.bindAsContract(CommentService.class);
                 this.bindAsContract(RSVPService.class);
+                this.bindAsContract(MonitoringService.class);
+                this.bindAsContract(VisitorService.class);
             }
         };
         register(binder);
@@ -0,0 +1,288 @@
+package rs.raf.demo.admission;
+
+import rs.raf.demo.config.DatabaseConfig;
+import rs.raf.demo.counters.RSVPCounts;
+import rs.raf.demo.entities.Event;
+import rs.raf.demo.entities.RSVP;
+import rs.raf.demo.entities.RSVPAdmission;
+import rs.raf.demo.repositories.event.EventRepository;
+import rs.raf.demo.repositories.rsvp.RSVPRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Flash signup mode: for events switched into it, seats are granted in memory against an atomic counter and
+// a single writer thread stores the admitted RSVPs in batches, so signups never pile up on MySQL row locks
+public class FlashSignupQueue {
+
+    @Inject
+    private EventRepository eventRepository;
+
+    @Inject
+    private RSVPRepository rsvpRepository;
+
+    @Inject
+    private RSVPCounts rsvpCounts;
+
+    private final Map<Integer, EventSeats> events = new ConcurrentHashMap<>();
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Map<String, SignupTicket> tickets = new ConcurrentHashMap<>();
+
+    private int batchSize;
+    private long ticketTtlMs;
+    private long lastPurgeAt;
+    private volatile boolean running;
+    private Thread writer;
+
+    @PostConstruct
+    public void start() {
+        this.batchSize = Math.max(1, DatabaseConfig.getInt("rsvp.flash.batchSize", 200));
+        this.ticketTtlMs = DatabaseConfig.getLong("rsvp.flash.ticketTtlMs", 600000);
+        this.running = true;
+        this.writer = new Thread(this::drain, "flash-signup-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        this.running = false;
+        if (this.writer != null) {
+            this.writer.interrupt();
+            try {
+                this.writer.join(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Whatever was accepted but not yet written still has to reach MySQL
+        List<Pending> remaining = new ArrayList<>();
+        this.queue.drainTo(remaining);
+        this.write(remaining);
+    }
+
+    // Returns null when the event does not exist
+    public synchronized FlashSignupStatus enable(Integer eventId) {
+        if (!this.events.containsKey(eventId)) {
+            Event event = this.eventRepository.findEvent(eventId);
+            int taken = event == null ? -1 : this.rsvpRepository.findSeatsTaken(eventId);
+            if (taken < 0) {
+                return null;
+            }
+
+            Integer capacity = event.getMaxCapacity();
+            EventSeats seats = new EventSeats(capacity == null || capacity <= 0 ? null : capacity - taken);
+            for (RSVP rsvp : this.rsvpRepository.findRSVPsByEventId(eventId)) {
+                seats.registered.add(this.userKey(rsvp.getUserIdentifier()));
+            }
+            this.events.put(eventId, seats);
+        }
+        return this.status(eventId);
+    }
+
+    public synchronized FlashSignupStatus disable(Integer eventId) {
+        // Signups already accepted stay in the queue and are still written
+        this.events.remove(eventId);
+        return this.status(eventId);
+    }
+
+    public boolean isEnabled(Integer eventId) {
+        return this.events.containsKey(eventId);
+    }
+
+    // A cancelled RSVP gives its seat back to the in-memory count while the event is in flash mode
+    public void seatReleased(Integer eventId, String userIdentifier) {
+        EventSeats seats = this.events.get(eventId);
+        if (seats != null && seats.registered.remove(this.userKey(userIdentifier))) {
+            seats.release();
+        }
+    }
+
+    public FlashSignupStatus status(Integer eventId) {
+        EventSeats seats = this.events.get(eventId);
+        if (seats == null) {
+            return new FlashSignupStatus(eventId, false, null, 0);
+        }
+        return new FlashSignupStatus(eventId, true,
+                seats.remaining == null ? null : Math.max(0, seats.remaining.get()), seats.queued.get());
+    }
+
+    // Decides the signup in memory; returns null when the event is not in flash mode
+    public SignupTicket submit(RSVP rsvp) {
+        EventSeats seats = this.events.get(rsvp.getEventId());
+        if (seats == null) {
+            return null;
+        }
+
+        String user = this.userKey(rsvp.getUserIdentifier());
+        if (!seats.registered.add(user)) {
+            return new SignupTicket(this.newTicketId(), rsvp, SignupTicket.Status.ALREADY_REGISTERED);
+        }
+        if (!seats.claim()) {
+            seats.registered.remove(user);
+            return new SignupTicket(this.newTicketId(), rsvp, SignupTicket.Status.FULL);
+        }
+
+        SignupTicket ticket = new SignupTicket(this.newTicketId(), rsvp, SignupTicket.Status.QUEUED);
+        this.tickets.put(ticket.getId(), ticket);
+        seats.queued.incrementAndGet();
+        this.queue.add(new Pending(ticket, seats, user));
+        return ticket;
+    }
+
+    public SignupTicket findTicket(String ticketId) {
+        return this.tickets.get(ticketId);
+    }
+
+    private void drain() {
+        while (this.running) {
+            try {
+                Pending first = this.queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    List<Pending> batch = new ArrayList<>();
+                    batch.add(first);
+                    this.queue.drainTo(batch, this.batchSize - 1);
+                    this.write(batch);
+                }
+                this.purgeTickets();
+            } catch (InterruptedException e) {
+                if (!this.running) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        Map<Integer, List<Pending>> byEvent = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            byEvent.computeIfAbsent(pending.ticket.getEventId(), key -> new ArrayList<>()).add(pending);
+        }
+
+        for (Map.Entry<Integer, List<Pending>> entry : byEvent.entrySet()) {
+            List<RSVP> rsvps = new ArrayList<>();
+            for (Pending pending : entry.getValue()) {
+                rsvps.add(pending.ticket.pendingRSVP());
+            }
+
+            if (this.rsvpRepository.addAdmittedRSVPs(entry.getKey(), rsvps)) {
+                // The batch UPDATE does not report the resulting count, so the next read reloads it
+                this.rsvpCounts.invalidate(entry.getKey());
+                for (Pending pending : entry.getValue()) {
+                    this.complete(pending, SignupTicket.Status.ADMITTED);
+                }
+                continue;
+            }
+
+            // The batch was refused (a duplicate, or seats taken outside flash mode); MySQL decides one by one
+            for (Pending pending : entry.getValue()) {
+                long countGeneration = this.rsvpCounts.generation();
+                RSVPAdmission admission = this.rsvpRepository.admitRSVP(pending.ticket.pendingRSVP());
+                switch (admission.getStatus()) {
+                    case ADMITTED:
+                        this.rsvpCounts.admitted(entry.getKey(), admission.getCurrentCount(), countGeneration);
+                        this.complete(pending, SignupTicket.Status.ADMITTED);
+                        break;
+                    case ALREADY_REGISTERED:
+                        pending.seats.release();
+                        this.complete(pending, SignupTicket.Status.ALREADY_REGISTERED);
+                        break;
+                    case FULL:
+                        pending.seats.registered.remove(pending.user);
+                        this.complete(pending, SignupTicket.Status.FULL);
+                        break;
+                    default:
+                        pending.seats.release();
+                        pending.seats.registered.remove(pending.user);
+                        this.complete(pending, SignupTicket.Status.FAILED);
+                        break;
+                }
+            }
+        }
+    }
+
+    private void complete(Pending pending, SignupTicket.Status status) {
+        pending.seats.queued.decrementAndGet();
+        pending.ticket.complete(status);
+    }
+
+    private void purgeTickets() {
+        long now = System.currentTimeMillis();
+        if (now - this.lastPurgeAt < 1000) {
+            return;
+        }
+        this.lastPurgeAt = now;
+        long expireBefore = now - this.ticketTtlMs;
+        this.tickets.values().removeIf(ticket ->
+                ticket.getStatus() != SignupTicket.Status.QUEUED && ticket.getCompletedAt() < expireBefore);
+    }
+
+    // user_identifier is compared case-insensitively by MySQL's unique key
+    private String userKey(String userIdentifier) {
+        return userIdentifier.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private String newTicketId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+    }
+
+    private static final class EventSeats {
+        // Null for events without a capacity limit
+        private final AtomicInteger remaining;
+        private final Set<String> registered = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger queued = new AtomicInteger();
+
+        private EventSeats(Integer remaining) {
+            this.remaining = remaining == null ? null : new AtomicInteger(remaining);
+        }
+
+        private boolean claim() {
+            if (this.remaining == null) {
+                return true;
+            }
+            while (true) {
+                int seats = this.remaining.get();
+                if (seats <= 0) {
+                    return false;
+                }
+                if (this.remaining.compareAndSet(seats, seats - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release() {
+            if (this.remaining != null) {
+                this.remaining.incrementAndGet();
+            }
+        }
+    }
+
+    private static final class Pending {
+        private final SignupTicket ticket;
+        private final EventSeats seats;
+        private final String user;
+
+        private Pending(SignupTicket ticket, EventSeats seats, String user) {
+            this.ticket = ticket;
+            this.seats = seats;
+            this.user = user;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package rs.raf.demo.admission;
+
+public class FlashSignupStatus {
+    private final Integer eventId;
+    private final boolean enabled;
+    private final Integer remainingSeats;
+    private final int queuedSignups;
+
+    public FlashSignupStatus(Integer eventId, boolean enabled, Integer remainingSeats, int queuedSignups) {
+        this.eventId = eventId;
+        this.enabled = enabled;
+        this.remainingSeats = remainingSeats;
+        this.queuedSignups = queuedSignups;
+    }
+
+    public Integer getEventId() {
+        return eventId;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Null when the event has no capacity limit
+    public Integer getRemainingSeats() {
+        return remainingSeats;
+    }
+
+    public int getQueuedSignups() {
+        return queuedSignups;
+    }
+}
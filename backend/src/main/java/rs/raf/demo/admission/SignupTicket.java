@@ -0,0 +1,66 @@
+package rs.raf.demo.admission;
+
+import rs.raf.demo.entities.RSVP;
+
+public class SignupTicket {
+
+    public enum Status {
+        QUEUED,
+        ADMITTED,
+        FULL,
+        ALREADY_REGISTERED,
+        FAILED
+    }
+
+    private final String id;
+    private final Integer eventId;
+    private final RSVP rsvp;
+    private final long createdAt;
+    private volatile Status status;
+    private volatile long completedAt;
+
+    SignupTicket(String id, RSVP rsvp, Status status) {
+        this.id = id;
+        this.eventId = rsvp.getEventId();
+        this.rsvp = rsvp;
+        this.createdAt = System.currentTimeMillis();
+        this.status = status;
+        if (status != Status.QUEUED) {
+            this.completedAt = this.createdAt;
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Integer getEventId() {
+        return eventId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    // Only handed out once the row is stored and has its id
+    public RSVP getRsvp() {
+        return status == Status.ADMITTED ? rsvp : null;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getCompletedAt() {
+        return completedAt;
+    }
+
+    RSVP pendingRSVP() {
+        return rsvp;
+    }
+
+    void complete(Status status) {
+        this.completedAt = System.currentTimeMillis();
+        this.status = status;
+    }
+}
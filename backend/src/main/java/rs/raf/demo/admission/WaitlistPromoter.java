@@ -0,0 +1,115 @@
+package rs.raf.demo.admission;
+
+import rs.raf.demo.config.DatabaseConfig;
+import rs.raf.demo.counters.RSVPCounts;
+import rs.raf.demo.entities.RSVP;
+import rs.raf.demo.repositories.waitlist.WaitlistRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Fills freed seats from the waitlist off the request path: cancellations and capacity changes only signal
+// the event, and one promoter thread moves the oldest waiting people into seats in batches
+public class WaitlistPromoter {
+
+    @Inject
+    private WaitlistRepository waitlistRepository;
+
+    @Inject
+    private RSVPCounts rsvpCounts;
+
+    @Inject
+    private FlashSignupQueue flashSignupQueue;
+
+    // An event is queued at most once however many seats free up before the promoter reaches it
+    private final Set<Integer> signalled = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<Integer> signals = new LinkedBlockingQueue<>();
+
+    private int batchSize;
+    private long sweepIntervalMs;
+    private volatile boolean running;
+    private Thread promoter;
+
+    @PostConstruct
+    public void start() {
+        this.batchSize = Math.max(1, DatabaseConfig.getInt("rsvp.waitlist.batchSize", 100));
+        this.sweepIntervalMs = Math.max(1000, DatabaseConfig.getLong("rsvp.waitlist.sweepIntervalMs", 60000));
+        this.running = true;
+        this.promoter = new Thread(this::promoteSignalled, "waitlist-promoter");
+        this.promoter.setDaemon(true);
+        this.promoter.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        this.running = false;
+        if (this.promoter != null) {
+            this.promoter.interrupt();
+            try {
+                this.promoter.join(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public void signal(Integer eventId) {
+        if (this.signalled.add(eventId)) {
+            this.signals.add(eventId);
+        }
+    }
+
+    private void promoteSignalled() {
+        // The first sweep picks up whatever was left waiting when the application last stopped
+        long nextSweepAt = System.currentTimeMillis();
+        while (this.running) {
+            try {
+                long now = System.currentTimeMillis();
+                if (now >= nextSweepAt) {
+                    for (Integer eventId : this.waitlistRepository.findEventsWithFreeSeats()) {
+                        this.signal(eventId);
+                    }
+                    nextSweepAt = now + this.sweepIntervalMs;
+                }
+
+                Integer eventId = this.signals.poll(Math.max(1, nextSweepAt - now), TimeUnit.MILLISECONDS);
+                if (eventId != null) {
+                    // Cleared first so a seat freed while this promotion runs signals the event again
+                    this.signalled.remove(eventId);
+                    this.promote(eventId);
+                }
+            } catch (InterruptedException e) {
+                if (!this.running) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void promote(Integer eventId) {
+        // In flash mode seats are handed out from memory; switching it off signals the event again
+        if (this.flashSignupQueue.isEnabled(eventId)) {
+            return;
+        }
+
+        while (true) {
+            List<RSVP> promoted = this.waitlistRepository.promote(eventId, this.batchSize);
+            if (promoted.isEmpty()) {
+                return;
+            }
+            this.rsvpCounts.invalidate(eventId);
+            if (promoted.size() < this.batchSize) {
+                return;
+            }
+        }
+    }
+}
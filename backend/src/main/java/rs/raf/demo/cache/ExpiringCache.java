@@ -0,0 +1,102 @@
+package rs.raf.demo.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+public class ExpiringCache<K, V> {
+
+    private final long ttlMillis;
+    private final int maxSize;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    // Bumped by every invalidation, so a load that started before one cannot store its older value
+    private final AtomicLong generation = new AtomicLong();
+
+    public ExpiringCache(long ttlMillis, int maxSize) {
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = this.entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            this.entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public V get(K key, Function<K, V> loader) {
+        V value = this.get(key);
+        if (value == null) {
+            long loadGeneration = this.generation.get();
+            value = loader.apply(key);
+            synchronized (this) {
+                if (this.generation.get() == loadGeneration) {
+                    this.put(key, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        this.put(key, value, this.ttlMillis);
+    }
+
+    public void put(K key, V value, long ttlMillis) {
+        if (value == null || ttlMillis <= 0) {
+            return;
+        }
+        if (this.entries.size() >= this.maxSize && !this.entries.containsKey(key)) {
+            this.purgeExpired();
+            if (this.entries.size() >= this.maxSize) {
+                return;
+            }
+        }
+        this.entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized void invalidate(K key) {
+        this.generation.incrementAndGet();
+        this.entries.remove(key);
+    }
+
+    public synchronized void invalidateIf(Predicate<V> predicate) {
+        this.generation.incrementAndGet();
+        this.entries.values().removeIf(entry -> predicate.test(entry.value));
+    }
+
+    public synchronized void invalidateAll() {
+        this.generation.incrementAndGet();
+        this.entries.clear();
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        this.entries.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= this.expiresAt;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package rs.raf.demo.cache;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import rs.raf.demo.config.DatabaseConfig;
+import rs.raf.demo.entities.User;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Users behind already verified tokens; an entry never outlives the token it was verified from
+public class PrincipalCache {
+
+    private final long maxTtlMillis = DatabaseConfig.getLong("auth.principalCache.maxTtlMs", 900000);
+    private final ExpiringCache<String, User> principals = new ExpiringCache<>(
+            this.maxTtlMillis, DatabaseConfig.getInt("auth.principalCache.maxSize", 10000));
+    // Bumped on every invalidation so a lookup that started earlier cannot cache a stale user
+    private final AtomicLong generation = new AtomicLong();
+
+    public User get(String token) {
+        return this.principals.get(this.keyOf(token));
+    }
+
+    public long generation() {
+        return this.generation.get();
+    }
+
+    // Synchronized with invalidateUser so an invalidation cannot land between the check and the put
+    public synchronized void put(String token, User user, long expiresAt, long loadGeneration) {
+        long ttlMillis = Math.min(expiresAt - System.currentTimeMillis(), this.maxTtlMillis);
+        if (this.generation.get() == loadGeneration) {
+            this.principals.put(this.keyOf(token), user, ttlMillis);
+        }
+    }
+
+    public synchronized void invalidateUser(Integer userId) {
+        this.generation.incrementAndGet();
+        this.principals.invalidateIf(user -> Objects.equals(user.getId(), userId));
+    }
+
+    public int size() {
+        return this.principals.size();
+    }
+
+    // Raw tokens are credentials, so only their digest is kept in memory
+    private String keyOf(String token) {
+        return DigestUtils.sha256Hex(token);
+    }
+}
@@ -0,0 +1,170 @@
+package rs.raf.demo.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+// Rows of a rarely written table indexed by id and by their unique name; callers always get their own copies
+public class ReferenceCache<T> {
+
+    // Rough HotSpot sizes (compressed oops): a map node plus its boxed Integer key
+    private static final long ENTRY_OVERHEAD_BYTES = 32 + 16;
+
+    private final String name;
+    private final int maxSize;
+    private final Function<T, Integer> idOf;
+    private final Function<T, String> nameOf;
+    private final UnaryOperator<T> copier;
+    private final ToLongFunction<T> sizeOf;
+
+    private final Map<Integer, T> byId = new ConcurrentHashMap<>();
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    // Bumped on every write so a read-through load that started earlier cannot cache an old row
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile boolean complete;
+
+    public ReferenceCache(String name, int maxSize, Function<T, Integer> idOf, Function<T, String> nameOf,
+                          UnaryOperator<T> copier, ToLongFunction<T> sizeOf) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.idOf = idOf;
+        this.nameOf = nameOf;
+        this.copier = copier;
+        this.sizeOf = sizeOf;
+    }
+
+    public long generation() {
+        return this.generation.get();
+    }
+
+    public T get(Integer id) {
+        T value = id == null ? null : this.byId.get(id);
+        return this.counted(value);
+    }
+
+    public T getByName(String name) {
+        Integer id = name == null ? null : this.idsByName.get(this.key(name));
+        return this.counted(id == null ? null : this.byId.get(id));
+    }
+
+    // Copies of the cached rows; ids that are not cached are added to `missing`
+    public List<T> getAll(Collection<Integer> ids, Collection<Integer> missing) {
+        List<T> values = new ArrayList<>();
+        for (Integer id : ids) {
+            T value = this.get(id);
+            if (value == null) {
+                missing.add(id);
+            } else {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    // Every row in the table, or null while the cache does not hold the full set
+    public List<T> values() {
+        if (!this.complete) {
+            return null;
+        }
+        List<T> values = new ArrayList<>();
+        for (T value : this.byId.values()) {
+            values.add(this.copier.apply(value));
+        }
+        return values;
+    }
+
+    // Read-through fill after a miss
+    public void load(T value, long loadGeneration) {
+        if (value == null) {
+            return;
+        }
+        synchronized (this) {
+            if (this.generation.get() == loadGeneration) {
+                this.store(value);
+            }
+        }
+    }
+
+    public synchronized void replaceAll(List<T> values) {
+        this.generation.incrementAndGet();
+        this.byId.clear();
+        this.idsByName.clear();
+        for (T value : values) {
+            this.store(value);
+        }
+        // The MySQL repositories return an empty list on errors, so an empty load proves nothing
+        this.complete = !values.isEmpty() && this.byId.size() == values.size();
+    }
+
+    // Called after a write with the row as it is now stored, or null once it is gone
+    public synchronized void refresh(Integer id, T current) {
+        this.generation.incrementAndGet();
+        this.evict(id);
+        if (current != null && !this.store(current)) {
+            this.complete = false;
+        }
+    }
+
+    public ReferenceCacheStatistics getStatistics() {
+        long estimatedBytes = 0;
+        for (T value : this.byId.values()) {
+            estimatedBytes += ENTRY_OVERHEAD_BYTES + this.sizeOf.applyAsLong(value);
+        }
+        for (String nameKey : this.idsByName.keySet()) {
+            estimatedBytes += ENTRY_OVERHEAD_BYTES + stringBytes(nameKey);
+        }
+        return new ReferenceCacheStatistics(this.name, this.byId.size(), this.complete,
+                this.hits.sum(), this.misses.sum(), estimatedBytes);
+    }
+
+    // A String object plus its byte[] holding Latin-1 characters
+    public static long stringBytes(String value) {
+        return value == null ? 0 : 24 + 16 + value.length();
+    }
+
+    private T counted(T value) {
+        if (value == null) {
+            this.misses.increment();
+            return null;
+        }
+        this.hits.increment();
+        return this.copier.apply(value);
+    }
+
+    private boolean store(T value) {
+        Integer id = this.idOf.apply(value);
+        if (id == null || (this.byId.size() >= this.maxSize && !this.byId.containsKey(id))) {
+            return false;
+        }
+        this.evict(id);
+        T copy = this.copier.apply(value);
+        this.byId.put(id, copy);
+        String valueName = this.nameOf.apply(copy);
+        if (valueName != null) {
+            this.idsByName.put(this.key(valueName), id);
+        }
+        return true;
+    }
+
+    private void evict(Integer id) {
+        T previous = this.byId.remove(id);
+        if (previous != null && this.nameOf.apply(previous) != null) {
+            this.idsByName.remove(this.key(this.nameOf.apply(previous)), id);
+        }
+    }
+
+    // MySQL compares these columns case-insensitively
+    private String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,48 @@
+package rs.raf.demo.cache;
+
+public class ReferenceCacheStatistics {
+    private final String name;
+    private final int entries;
+    private final boolean complete;
+    private final long hits;
+    private final long misses;
+    private final long estimatedBytes;
+
+    public ReferenceCacheStatistics(String name, int entries, boolean complete, long hits, long misses, long estimatedBytes) {
+        this.name = name;
+        this.entries = entries;
+        this.complete = complete;
+        this.hits = hits;
+        this.misses = misses;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+}
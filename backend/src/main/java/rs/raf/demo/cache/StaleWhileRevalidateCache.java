@@ -0,0 +1,126 @@
+package rs.raf.demo.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Fresh entries are served as is, stale ones are served while a background reload runs,
+// and only a missing or expired entry makes the caller wait for the loader
+public class StaleWhileRevalidateCache<K, V> {
+
+    private final long freshMillis;
+    private final long maxStaleMillis;
+    private final int maxSize;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so a load that started earlier cannot put old data back
+    private final AtomicLong generation = new AtomicLong();
+    private final ExecutorService refresher;
+
+    public StaleWhileRevalidateCache(String name, long freshMillis, long maxStaleMillis, int maxSize) {
+        this.freshMillis = freshMillis;
+        this.maxStaleMillis = Math.max(freshMillis, maxStaleMillis);
+        this.maxSize = maxSize;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.refresher = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, name + "-refresh-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        Entry<V> entry = this.entries.get(key);
+        long now = System.currentTimeMillis();
+        if (entry != null) {
+            long age = now - entry.loadedAt;
+            if (age < this.freshMillis) {
+                return entry.value;
+            }
+            if (age < this.maxStaleMillis) {
+                this.load(key, loader, true);
+                return entry.value;
+            }
+        }
+
+        try {
+            return this.load(key, loader, false).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return loader.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not load " + key, e.getCause());
+        }
+    }
+
+    public void invalidateAll() {
+        this.generation.incrementAndGet();
+        this.loading.clear();
+        this.entries.clear();
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public void shutdown() {
+        this.refresher.shutdownNow();
+    }
+
+    // Concurrent callers for the same key share one load instead of stampeding the database
+    private CompletableFuture<V> load(K key, Supplier<V> loader, boolean async) {
+        CompletableFuture<V> pending = this.loading.get(key);
+        if (pending != null) {
+            return pending;
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        pending = this.loading.putIfAbsent(key, future);
+        if (pending != null) {
+            return pending;
+        }
+
+        long loadGeneration = this.generation.get();
+        Runnable task = () -> {
+            try {
+                V value = loader.get();
+                if (this.generation.get() == loadGeneration && (this.entries.size() < this.maxSize || this.entries.containsKey(key))) {
+                    this.entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+                }
+                future.complete(value);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                this.loading.remove(key, future);
+            }
+        };
+
+        if (async) {
+            try {
+                this.refresher.execute(task);
+            } catch (RejectedExecutionException e) {
+                this.loading.remove(key, future);
+            }
+        } else {
+            task.run();
+        }
+        return future;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package rs.raf.demo.config;
+
+import rs.raf.demo.repositories.MySqlAbstractRepository;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+@WebListener
+public class DatabaseLifecycleListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        MySqlAbstractRepository.getConnectionPool().close();
+    }
+}
@@ -0,0 +1,158 @@
+package rs.raf.demo.counters;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Append-only log of counter increments, one 4-byte id per record, split into numbered segments.
+// Appends are buffered in memory and written and fsynced by sync() on a short timer, so a crash of the process
+// or the host loses at most the increments since the last sync. Segments are deleted only after their increments
+// are committed, so everything that was synced is replayed after a crash (at-least-once).
+public class CounterJournal {
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_SIZE = Integer.BYTES;
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    private final Path directory;
+    private final String prefix;
+    private final List<Path> closedSegments = new ArrayList<>();
+    private FileChannel currentChannel;
+    private Path currentSegment;
+    private long nextSegmentNumber;
+    // Guards only the buffer, so request threads never wait behind a write or an fsync
+    private final Object bufferLock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    public CounterJournal(Path directory, String prefix) throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        Files.createDirectories(directory);
+    }
+
+    // Reads every segment left behind by a previous run and keeps them until the next successful flush
+    public synchronized Map<Integer, Long> replay() throws IOException {
+        Map<Integer, Long> counts = new HashMap<>();
+        List<Path> segments = this.listSegments();
+        for (Path segment : segments) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+            // A torn record at the tail means the process died mid-write; it was never acknowledged
+            while (buffer.remaining() >= RECORD_SIZE) {
+                counts.merge(buffer.getInt(), 1L, Long::sum);
+            }
+            this.nextSegmentNumber = Math.max(this.nextSegmentNumber, this.segmentNumber(segment) + 1);
+        }
+        this.closedSegments.addAll(segments);
+        this.openSegment();
+        return counts;
+    }
+
+    public void append(int id) {
+        synchronized (this.bufferLock) {
+            if (this.pending.remaining() < RECORD_SIZE) {
+                ByteBuffer larger = ByteBuffer.allocate(this.pending.capacity() * 2);
+                this.pending.flip();
+                larger.put(this.pending);
+                this.pending = larger;
+            }
+            this.pending.putInt(id);
+        }
+    }
+
+    // Callers must make sure no append is in flight while rotating
+    public synchronized void rotate() throws IOException {
+        this.writePending();
+        if (this.currentChannel.size() == 0) {
+            return;
+        }
+        this.currentChannel.force(false);
+        this.currentChannel.close();
+        this.closedSegments.add(this.currentSegment);
+        this.openSegment();
+    }
+
+    public synchronized void deleteClosedSegments() {
+        for (Path segment : this.closedSegments) {
+            try {
+                Files.deleteIfExists(segment);
+            } catch (IOException e) {
+                System.err.println("Could not delete journal segment " + segment + ": " + e.getMessage());
+            }
+        }
+        this.closedSegments.clear();
+    }
+
+    public synchronized void sync() throws IOException {
+        if (this.writePending()) {
+            this.currentChannel.force(false);
+        }
+    }
+
+    public synchronized int getSegmentCount() {
+        return this.closedSegments.size() + 1;
+    }
+
+    public synchronized void close() {
+        try {
+            this.writePending();
+            this.currentChannel.force(false);
+            this.currentChannel.close();
+            if (Files.size(this.currentSegment) == 0) {
+                Files.deleteIfExists(this.currentSegment);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private boolean writePending() throws IOException {
+        ByteBuffer records;
+        synchronized (this.bufferLock) {
+            if (this.pending.position() == 0) {
+                return false;
+            }
+            records = this.pending;
+            this.pending = ByteBuffer.allocate(records.capacity());
+        }
+        records.flip();
+        while (records.hasRemaining()) {
+            this.currentChannel.write(records);
+        }
+        return true;
+    }
+
+    private void openSegment() throws IOException {
+        this.currentSegment = this.directory.resolve(String.format("%s-%012d%s", this.prefix, this.nextSegmentNumber++, SEGMENT_SUFFIX));
+        this.currentChannel = FileChannel.open(this.currentSegment,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, this.prefix + "-*" + SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(this.prefix.length() + 1, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
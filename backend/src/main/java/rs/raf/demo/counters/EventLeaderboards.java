@@ -0,0 +1,70 @@
+package rs.raf.demo.counters;
+
+import rs.raf.demo.entities.Event;
+import rs.raf.demo.entities.ReactionCounts;
+import rs.raf.demo.repositories.event.EventRepository;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.List;
+
+// Most visited / most reacted rankings kept in memory; MySQL is only read once to seed them
+public class EventLeaderboards {
+
+    @Inject
+    private EventRepository eventRepository;
+
+    @Inject
+    private ViewCounter viewCounter;
+
+    private final Leaderboard views = new Leaderboard();
+    private final Leaderboard reactions = new Leaderboard();
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void start() {
+        List<Event> events = this.eventRepository.allEvents();
+        for (Event event : events) {
+            // Views still buffered (or replayed from the journal) are not in the column yet
+            this.views.set(event.getId(), this.valueOf(event.getViews()) + this.viewCounter.getPendingViews(event.getId()));
+            this.reactions.set(event.getId(), this.valueOf(event.getLikeCount()) + this.valueOf(event.getDislikeCount()));
+        }
+        this.ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void eventAdded(Event event) {
+        this.views.set(event.getId(), 0);
+        this.reactions.set(event.getId(), 0);
+    }
+
+    public void eventRemoved(Integer eventId) {
+        this.views.remove(eventId);
+        this.reactions.remove(eventId);
+    }
+
+    public void viewRecorded(Integer eventId) {
+        this.views.add(eventId, 1);
+    }
+
+    public void reactionsChanged(Integer eventId, ReactionCounts counts) {
+        if (counts != null) {
+            this.reactions.update(eventId, (long) counts.getLikeCount() + counts.getDislikeCount());
+        }
+    }
+
+    public List<Integer> mostVisited(int limit) {
+        return this.views.top(limit);
+    }
+
+    public List<Integer> mostReacted(int limit) {
+        return this.reactions.top(limit);
+    }
+
+    private long valueOf(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
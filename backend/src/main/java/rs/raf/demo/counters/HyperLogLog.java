@@ -0,0 +1,103 @@
+package rs.raf.demo.counters;
+
+import java.nio.charset.StandardCharsets;
+
+// Fixed-size distinct counter: 2^12 one-byte registers (4 KB) give about 1.6% standard error at any cardinality.
+// Sketches merge by taking the register-wise maximum, so adding the same visitor twice, or merging the same
+// sketch twice, never changes the estimate. Not thread-safe; callers synchronise.
+public class HyperLogLog {
+
+    public static final int PRECISION = 12;
+    public static final double STANDARD_ERROR = 1.04 / Math.sqrt(1 << PRECISION);
+
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    // Null when the blob was written with another precision or is damaged; the caller starts a fresh sketch
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != REGISTERS + 1 || bytes[0] != PRECISION) {
+            return null;
+        }
+        byte[] registers = new byte[REGISTERS];
+        System.arraycopy(bytes, 1, registers, 0, REGISTERS);
+        return new HyperLogLog(registers);
+    }
+
+    // FNV-1a spreads the bytes, the murmur3 finaliser fixes FNV's weak high bits that pick the register
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    // Returns whether a register grew, i.e. whether the sketch has anything new to persist
+    public boolean add(long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        // The sentinel bit caps the rank at 64 - PRECISION + 1 when the remaining bits are all zero
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+        if (rank > this.registers[index]) {
+            this.registers[index] = rank;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean merge(HyperLogLog other) {
+        boolean changed = false;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > this.registers[i]) {
+                this.registers[i] = other.registers[i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : this.registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        // Linear counting is far more accurate while many registers are still empty
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public HyperLogLog copy() {
+        return new HyperLogLog(this.registers.clone());
+    }
+
+    // One precision byte followed by the registers
+    public byte[] toBytes() {
+        byte[] bytes = new byte[REGISTERS + 1];
+        bytes[0] = PRECISION;
+        System.arraycopy(this.registers, 0, bytes, 1, REGISTERS);
+        return bytes;
+    }
+}
@@ -0,0 +1,97 @@
+package rs.raf.demo.counters;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Every id is kept ordered by score, so reading the top K is a walk over the first K nodes
+public class Leaderboard {
+
+    private final Map<Integer, Long> scores = new ConcurrentHashMap<>();
+    private final NavigableSet<Ranked> ranking = new ConcurrentSkipListSet<>();
+
+    public void set(Integer id, long score) {
+        // compute() serialises updates per id, so the skip list never holds two nodes for one id
+        this.scores.compute(id, (key, previous) -> {
+            this.move(key, previous, score);
+            return score;
+        });
+    }
+
+    // Unlike set(), ignores ids that were never added or have been removed
+    public void update(Integer id, long score) {
+        this.scores.computeIfPresent(id, (key, previous) -> {
+            this.move(key, previous, score);
+            return score;
+        });
+    }
+
+    public void add(Integer id, long delta) {
+        this.scores.computeIfPresent(id, (key, previous) -> {
+            long score = Math.max(0, previous + delta);
+            this.move(key, previous, score);
+            return score;
+        });
+    }
+
+    public void remove(Integer id) {
+        this.scores.computeIfPresent(id, (key, previous) -> {
+            this.ranking.remove(new Ranked(key, previous));
+            return null;
+        });
+    }
+
+    public List<Integer> top(int limit) {
+        List<Integer> ids = new ArrayList<>();
+        Iterator<Ranked> iterator = this.ranking.iterator();
+        while (ids.size() < limit && iterator.hasNext()) {
+            Ranked ranked = iterator.next();
+            // A node can be seen twice mid-move; the score map is the source of truth
+            if (!ids.contains(ranked.id) && ranked.score == this.scores.getOrDefault(ranked.id, -1L)) {
+                ids.add(ranked.id);
+            }
+        }
+        return ids;
+    }
+
+    public int size() {
+        return this.scores.size();
+    }
+
+    private void move(Integer id, Long previous, long score) {
+        if (previous != null) {
+            this.ranking.remove(new Ranked(id, previous));
+        }
+        this.ranking.add(new Ranked(id, score));
+    }
+
+    private static final class Ranked implements Comparable<Ranked> {
+        private final int id;
+        private final long score;
+
+        private Ranked(int id, long score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Ranked other) {
+            int byScore = Long.compare(other.score, this.score);
+            return byScore != 0 ? byScore : Integer.compare(other.id, this.id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Ranked && ((Ranked) other).id == this.id && ((Ranked) other).score == this.score;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.id + Long.hashCode(this.score);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package rs.raf.demo.counters;
+
+import rs.raf.demo.config.DatabaseConfig;
+import rs.raf.demo.repositories.rsvp.RSVPRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// RSVP counts per event served from memory; event_rsvp_counter, kept in the same transactions as the rows, stays the source of truth
+public class RSVPCounts {
+
+    @Inject
+    private RSVPRepository rsvpRepository;
+
+    private final Map<Integer, Integer> counts = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so a load that started earlier cannot put back a count from before a delete
+    private final AtomicLong generation = new AtomicLong();
+
+    private ScheduledExecutorService reconciler;
+
+    @PostConstruct
+    public void start() {
+        long reconcileIntervalMs = DatabaseConfig.getLong("rsvp.counts.reconcileIntervalMs", 300000);
+        if (reconcileIntervalMs <= 0) {
+            return;
+        }
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rsvp-count-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reconciler.scheduleWithFixedDelay(this::reconcile, reconcileIntervalMs, reconcileIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.reconciler != null) {
+            this.reconciler.shutdownNow();
+        }
+    }
+
+    public int get(Integer eventId) {
+        Integer count = this.counts.get(eventId);
+        if (count != null) {
+            return count;
+        }
+
+        long loadGeneration = this.generation.get();
+        int taken = this.rsvpRepository.findSeatsTaken(eventId);
+        if (taken < 0) {
+            return 0;
+        }
+        if (this.generation.get() == loadGeneration) {
+            // An admission recorded meanwhile is newer than what was just read
+            count = this.counts.putIfAbsent(eventId, taken);
+        }
+        return count != null ? count : taken;
+    }
+
+    // Read before starting an admission and handed to admitted(), which drops the count if anything was invalidated since
+    public long generation() {
+        return this.generation.get();
+    }
+
+    // Admissions report the exact count they produced; they can finish out of order, and counts only grow here.
+    // The check runs inside compute() so an invalidation cannot slip between it and the write
+    public void admitted(Integer eventId, int currentCount, long admissionGeneration) {
+        this.counts.compute(eventId, (key, count) -> {
+            if (this.generation.get() != admissionGeneration) {
+                return count;
+            }
+            return count == null ? currentCount : Math.max(count, currentCount);
+        });
+    }
+
+    public void invalidate(Integer eventId) {
+        this.generation.incrementAndGet();
+        this.counts.remove(eventId);
+    }
+
+    public void reconcile() {
+        try {
+            List<Integer> repaired = this.rsvpRepository.reconcileSeatCounters();
+            if (!repaired.isEmpty()) {
+                System.err.println("RSVP counters drifted and were recounted for events " + repaired);
+                for (Integer eventId : repaired) {
+                    this.invalidate(eventId);
+                }
+            }
+
+            // The cached counts can also drift from the counter rows, e.g. through an admission that finished late
+            Map<Integer, Integer> cached = new HashMap<>(this.counts);
+            if (cached.isEmpty()) {
+                return;
+            }
+            long checkGeneration = this.generation.get();
+            Map<Integer, Integer> stored = this.rsvpRepository.findSeatsTaken(new ArrayList<>(cached.keySet()));
+            for (Map.Entry<Integer, Integer> entry : cached.entrySet()) {
+                Integer taken = stored.get(entry.getKey());
+                if (!entry.getValue().equals(taken) && this.generation.get() == checkGeneration) {
+                    // Removing only the value that was compared leaves a count changed since then for the next run
+                    if (this.counts.remove(entry.getKey(), entry.getValue())) {
+                        System.err.println("Cached RSVP count for event " + entry.getKey() + " was " + entry.getValue()
+                                + ", counter has " + taken);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+}
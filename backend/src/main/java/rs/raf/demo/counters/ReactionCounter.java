@@ -0,0 +1,237 @@
+package rs.raf.demo.counters;
+
+import rs.raf.demo.config.DatabaseConfig;
+import rs.raf.demo.entities.ReactionCounts;
+import rs.raf.demo.repositories.comment.CommentRepository;
+import rs.raf.demo.repositories.event.EventRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Like/dislike counts live here once touched; only the net delta per row is written back in batches
+public class ReactionCounter {
+
+    @Inject
+    private EventRepository eventRepository;
+
+    @Inject
+    private CommentRepository commentRepository;
+
+    private final Map<ReactionTarget, Map<Integer, Entry>> entries = new EnumMap<>(ReactionTarget.class);
+
+    private final LongAdder appliedReactions = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final AtomicLong lastFlushAt = new AtomicLong();
+
+    private long idleEvictionMs;
+    private ScheduledExecutorService flusher;
+
+    public ReactionCounter() {
+        for (ReactionTarget target : ReactionTarget.values()) {
+            this.entries.put(target, new ConcurrentHashMap<>());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        this.idleEvictionMs = DatabaseConfig.getLong("counters.reactions.idleEvictionMs", 600000);
+        long flushIntervalMs = DatabaseConfig.getLong("counters.reactions.flushIntervalMs", 2000);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reaction-counter-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.flusher != null) {
+            this.flusher.shutdown();
+            try {
+                this.flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.flush();
+    }
+
+    // Returns the counts after the change, or null when the row does not exist
+    public ReactionCounts apply(ReactionTarget target, Integer id, int likeDelta, int dislikeDelta) {
+        while (true) {
+            Entry entry = this.entry(target, id);
+            if (entry == null) {
+                return null;
+            }
+            synchronized (entry) {
+                if (entry.evicted) {
+                    // Lost a race with idle eviction, the row has to be loaded again
+                    continue;
+                }
+                entry.pendingLikes += likeDelta;
+                entry.pendingDislikes += dislikeDelta;
+                entry.lastUsedAt = System.currentTimeMillis();
+                this.appliedReactions.increment();
+                return entry.current();
+            }
+        }
+    }
+
+    public ReactionCounts getCounts(ReactionTarget target, Integer id) {
+        Entry entry = this.entry(target, id);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            return entry.current();
+        }
+    }
+
+    // Only answers for rows already buffered; never goes to the database
+    public ReactionCounts peek(ReactionTarget target, Integer id) {
+        Entry entry = this.entries.get(target).get(id);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            return entry.current();
+        }
+    }
+
+    public void discard(ReactionTarget target, Integer id) {
+        Entry entry = this.entries.get(target).remove(id);
+        if (entry != null) {
+            synchronized (entry) {
+                entry.evicted = true;
+            }
+        }
+    }
+
+    public synchronized void flush() {
+        for (ReactionTarget target : ReactionTarget.values()) {
+            this.flush(target);
+        }
+    }
+
+    public ReactionCounterStatistics getStatistics() {
+        int bufferedRows = 0;
+        int dirtyRows = 0;
+        for (Map<Integer, Entry> targetEntries : this.entries.values()) {
+            for (Entry entry : targetEntries.values()) {
+                bufferedRows++;
+                synchronized (entry) {
+                    if (entry.pendingLikes != 0 || entry.pendingDislikes != 0) {
+                        dirtyRows++;
+                    }
+                }
+            }
+        }
+        return new ReactionCounterStatistics(bufferedRows, dirtyRows, this.appliedReactions.sum(),
+                this.flushedRows.sum(), this.failedFlushes.sum(), this.lastFlushAt.get());
+    }
+
+    private void flush(ReactionTarget target) {
+        Map<Integer, Entry> targetEntries = this.entries.get(target);
+        Map<Integer, ReactionCounts> deltas = new HashMap<>();
+        for (Map.Entry<Integer, Entry> mapEntry : targetEntries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            synchronized (entry) {
+                // A like followed by an unlike nets out here and never reaches MySQL
+                if (entry.pendingLikes != 0 || entry.pendingDislikes != 0) {
+                    deltas.put(mapEntry.getKey(), new ReactionCounts(entry.pendingLikes, entry.pendingDislikes));
+                }
+            }
+        }
+
+        if (!deltas.isEmpty()) {
+            boolean flushed = target == ReactionTarget.EVENT
+                    ? this.eventRepository.applyReactionDeltas(deltas)
+                    : this.commentRepository.applyReactionDeltas(deltas);
+            if (!flushed) {
+                this.failedFlushes.increment();
+                return;
+            }
+
+            for (Map.Entry<Integer, ReactionCounts> delta : deltas.entrySet()) {
+                Entry entry = targetEntries.get(delta.getKey());
+                if (entry == null) {
+                    continue;
+                }
+                synchronized (entry) {
+                    entry.baseLikes = Math.max(0, entry.baseLikes + delta.getValue().getLikeCount());
+                    entry.baseDislikes = Math.max(0, entry.baseDislikes + delta.getValue().getDislikeCount());
+                    entry.pendingLikes -= delta.getValue().getLikeCount();
+                    entry.pendingDislikes -= delta.getValue().getDislikeCount();
+                }
+            }
+            this.flushedRows.add(deltas.size());
+            this.lastFlushAt.set(System.currentTimeMillis());
+        }
+
+        long evictBefore = System.currentTimeMillis() - this.idleEvictionMs;
+        Iterator<Entry> iterator = targetEntries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            synchronized (entry) {
+                if (entry.pendingLikes == 0 && entry.pendingDislikes == 0 && entry.lastUsedAt < evictBefore) {
+                    entry.evicted = true;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private Entry entry(ReactionTarget target, Integer id) {
+        Map<Integer, Entry> targetEntries = this.entries.get(target);
+        Entry entry = targetEntries.get(id);
+        if (entry != null) {
+            return entry;
+        }
+
+        ReactionCounts stored = this.load(target, id);
+        if (stored == null) {
+            return null;
+        }
+        // Two threads may load the same row; whoever registers first wins and the other load is dropped
+        return targetEntries.computeIfAbsent(id, key -> new Entry(stored.getLikeCount(), stored.getDislikeCount()));
+    }
+
+    // A counts-only query; a missing row is how reactions on deleted or unknown ids become not-found
+    private ReactionCounts load(ReactionTarget target, Integer id) {
+        return target == ReactionTarget.EVENT
+                ? this.eventRepository.findReactionCounts(id)
+                : this.commentRepository.findReactionCounts(id);
+    }
+
+    private static final class Entry {
+        private int baseLikes;
+        private int baseDislikes;
+        private int pendingLikes;
+        private int pendingDislikes;
+        private long lastUsedAt;
+        private boolean evicted;
+
+        private Entry(int baseLikes, int baseDislikes) {
+            this.baseLikes = baseLikes;
+            this.baseDislikes = baseDislikes;
+            this.lastUsedAt = System.currentTimeMillis();
+        }
+
+        private ReactionCounts current() {
+            return new ReactionCounts(Math.max(0, this.baseLikes + this.pendingLikes), Math.max(0, this.baseDislikes + this.pendingDislikes));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package rs.raf.demo.counters;
+
+public class ReactionCounterStatistics {
+    private final int bufferedRows;
+    private final int dirtyRows;
+    private final long appliedReactions;
+    private final long flushedRows;
+    private final long failedFlushes;
+    private final long lastFlushAt;
+
+    public ReactionCounterStatistics(int bufferedRows, int dirtyRows, long appliedReactions, long flushedRows,
+                                     long failedFlushes, long lastFlushAt) {
+        this.bufferedRows = bufferedRows;
+        this.dirtyRows = dirtyRows;
+        this.appliedReactions = appliedReactions;
+        this.flushedRows = flushedRows;
+        this.failedFlushes = failedFlushes;
+        this.lastFlushAt = lastFlushAt;
+    }
+
+    public int getBufferedRows() {
+        return bufferedRows;
+    }
+
+    public int getDirtyRows() {
+        return dirtyRows;
+    }
+
+    public long getAppliedReactions() {
+        return appliedReactions;
+    }
+
+    public long getFlushedRows() {
+        return flushedRows;
+    }
+
+    public long getFailedFlushes() {
+        return failedFlushes;
+    }
+
+    public long getLastFlushAt() {
+        return lastFlushAt;
+    }
+}
@@ -0,0 +1,6 @@
+package rs.raf.demo.counters;
+
+public enum ReactionTarget {
+    EVENT,
+    COMMENT
+}
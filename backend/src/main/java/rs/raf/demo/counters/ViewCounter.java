@@ -0,0 +1,225 @@
+package rs.raf.demo.counters;
+
+import rs.raf.demo.config.DatabaseConfig;
+import rs.raf.demo.repositories.event.EventRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Write-behind view counting: views land in per-event LongAdders and reach MySQL in periodic batches
+public class ViewCounter {
+
+    @Inject
+    private EventRepository eventRepository;
+
+    private final Map<Integer, Counter> counters = new ConcurrentHashMap<>();
+    // Recording threads share the read side; a flush takes the write side only to cut a consistent snapshot
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+    private final LongAdder flushedViews = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final AtomicLong lastFlushAt = new AtomicLong();
+
+    private int bucketRetentionDays;
+    private LocalDate rolledOffBefore;
+
+    private CounterJournal journal;
+    private ScheduledExecutorService journalWriter;
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void start() {
+        if (DatabaseConfig.getBoolean("counters.journal.enabled", true)) {
+            String directory = DatabaseConfig.getString("counters.journal.dir",
+                    Paths.get(System.getProperty("catalina.base", System.getProperty("user.dir")), "journal").toString());
+            try {
+                CounterJournal counterJournal = new CounterJournal(Paths.get(directory), "views");
+                for (Map.Entry<Integer, Long> replayed : counterJournal.replay().entrySet()) {
+                    this.counter(replayed.getKey()).total.add(replayed.getValue());
+                }
+                this.journal = counterJournal;
+            } catch (IOException e) {
+                System.err.println("View journal unavailable, counting without crash recovery: " + e.getMessage());
+            }
+        }
+
+        if (this.journal != null) {
+            // Views recorded within this window before a crash are not in the journal yet
+            long syncIntervalMs = Math.max(1, DatabaseConfig.getLong("counters.journal.syncIntervalMs", 200));
+            this.journalWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "view-journal-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.journalWriter.scheduleWithFixedDelay(this::syncJournal, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        // The 30-day most visited window needs at least 30 buckets
+        this.bucketRetentionDays = Math.max(30, DatabaseConfig.getInt("counters.views.bucketRetentionDays", 30));
+
+        long flushIntervalMs = DatabaseConfig.getLong("counters.views.flushIntervalMs", 5000);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "view-counter-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(() -> {
+            this.flush();
+            this.rollOffBuckets();
+        }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.flusher != null) {
+            this.flusher.shutdown();
+            try {
+                this.flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (this.journalWriter != null) {
+            this.journalWriter.shutdown();
+            try {
+                this.journalWriter.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.flush();
+        if (this.journal != null) {
+            this.journal.close();
+        }
+    }
+
+    public void record(Integer eventId) {
+        this.snapshotLock.readLock().lock();
+        try {
+            if (this.journal != null) {
+                this.journal.append(eventId);
+            }
+            this.counter(eventId).total.increment();
+        } finally {
+            this.snapshotLock.readLock().unlock();
+        }
+    }
+
+    private void syncJournal() {
+        try {
+            this.journal.sync();
+        } catch (IOException e) {
+            System.err.println("Could not sync view journal: " + e.getMessage());
+        }
+    }
+
+    public long getPendingViews(Integer eventId) {
+        Counter counter = this.counters.get(eventId);
+        return counter == null ? 0 : counter.pending();
+    }
+
+    // Views are bucketed by the day the snapshot is cut, so at most one flush interval spills into the next day
+    public synchronized void flush() {
+        Map<Integer, Long> snapshot = new HashMap<>();
+        LocalDate day;
+        this.snapshotLock.writeLock().lock();
+        try {
+            day = LocalDate.now();
+            if (this.journal != null) {
+                this.journal.rotate();
+            }
+            for (Map.Entry<Integer, Counter> entry : this.counters.entrySet()) {
+                long total = entry.getValue().total.sum();
+                if (total > entry.getValue().flushed) {
+                    snapshot.put(entry.getKey(), total);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not rotate view journal: " + e.getMessage());
+            this.failedFlushes.increment();
+            return;
+        } finally {
+            this.snapshotLock.writeLock().unlock();
+        }
+
+        Map<Integer, Long> deltas = new HashMap<>();
+        for (Map.Entry<Integer, Long> entry : snapshot.entrySet()) {
+            deltas.put(entry.getKey(), entry.getValue() - this.counters.get(entry.getKey()).flushed);
+        }
+
+        if (!this.eventRepository.addViews(deltas, day)) {
+            // Counters and journal segments stay as they are; the next flush retries the same deltas
+            this.failedFlushes.increment();
+            return;
+        }
+
+        for (Map.Entry<Integer, Long> entry : snapshot.entrySet()) {
+            this.counters.get(entry.getKey()).flushed = entry.getValue();
+        }
+        for (Long delta : deltas.values()) {
+            this.flushedViews.add(delta);
+        }
+        if (this.journal != null) {
+            this.journal.deleteClosedSegments();
+        }
+        this.lastFlushAt.set(System.currentTimeMillis());
+    }
+
+    // Once a day, drops the daily buckets that have left the retention window
+    private void rollOffBuckets() {
+        LocalDate cutoff = LocalDate.now().minusDays(this.bucketRetentionDays - 1);
+        if (cutoff.equals(this.rolledOffBefore)) {
+            return;
+        }
+        this.eventRepository.deleteViewBucketsBefore(cutoff);
+        this.rolledOffBefore = cutoff;
+    }
+
+    public ViewCounterStatistics getStatistics() {
+        long pendingViews = 0;
+        int pendingEvents = 0;
+        for (Counter counter : this.counters.values()) {
+            long pending = counter.pending();
+            if (pending > 0) {
+                pendingViews += pending;
+                pendingEvents++;
+            }
+        }
+        return new ViewCounterStatistics(
+                pendingViews,
+                pendingEvents,
+                this.flushedViews.sum(),
+                this.failedFlushes.sum(),
+                this.lastFlushAt.get(),
+                this.journal != null,
+                this.journal != null ? this.journal.getSegmentCount() : 0
+        );
+    }
+
+    private Counter counter(Integer eventId) {
+        return this.counters.computeIfAbsent(eventId, key -> new Counter());
+    }
+
+    // total only ever grows; flushed is what MySQL already has, so no increment is lost to a reset race
+    private static final class Counter {
+        private final LongAdder total = new LongAdder();
+        private volatile long flushed;
+
+        private long pending() {
+            return this.total.sum() - this.flushed;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package rs.raf.demo.counters;
+
+public class ViewCounterStatistics {
+    private final long pendingViews;
+    private final int pendingEvents;
+    private final long flushedViews;
+    private final long failedFlushes;
+    private final long lastFlushAt;
+    private final boolean journalEnabled;
+    private final int journalSegments;
+
+    public ViewCounterStatistics(long pendingViews, int pendingEvents, long flushedViews, long failedFlushes,
+                                 long lastFlushAt, boolean journalEnabled, int journalSegments) {
+        this.pendingViews = pendingViews;
+        this.pendingEvents = pendingEvents;
+        this.flushedViews = flushedViews;
+        this.failedFlushes = failedFlushes;
+        this.lastFlushAt = lastFlushAt;
+        this.journalEnabled = journalEnabled;
+        this.journalSegments = journalSegments;
+    }
+
+    public long getPendingViews() {
+        return pendingViews;
+    }
+
+    public int getPendingEvents() {
+        return pendingEvents;
+    }
+
+    public long getFlushedViews() {
+        return flushedViews;
+    }
+
+    public long getFailedFlushes() {
+        return failedFlushes;
+    }
+
+    public long getLastFlushAt() {
+        return lastFlushAt;
+    }
+
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    public int getJournalSegments() {
+        return journalSegments;
+    }
+}
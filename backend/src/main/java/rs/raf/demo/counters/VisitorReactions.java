@@ -0,0 +1,354 @@
+package rs.raf.demo.counters;
+
+import rs.raf.demo.config.DatabaseConfig;
+import rs.raf.demo.entities.ReactionToggle;
+import rs.raf.demo.entities.VisitorMark;
+import rs.raf.demo.entities.VisitorReactionFlags;
+import rs.raf.demo.repositories.visitor.VisitorReactionRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+// What each anonymous visitor has viewed, liked and disliked, kept as sorted int arrays - four bytes per mark
+// instead of a session attribute per event and comment. A visitor's marks are loaded from visitor_reaction on
+// first use; changes are written behind in batches and idle visitors are dropped from memory once written.
+public class VisitorReactions {
+
+    private static final int[] NO_IDS = new int[0];
+
+    // The codes are stored in visitor_reaction.mark, so they must never change
+    private enum Mark {
+        VIEWED_EVENT(1),
+        LIKED_EVENT(2),
+        DISLIKED_EVENT(3),
+        LIKED_COMMENT(4),
+        DISLIKED_COMMENT(5);
+
+        private final int code;
+
+        Mark(int code) {
+            this.code = code;
+        }
+
+        private static Mark fromCode(int code) {
+            for (Mark mark : values()) {
+                if (mark.code == code) {
+                    return mark;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final List<Integer> EVENT_MARKS = Arrays.asList(
+            Mark.VIEWED_EVENT.code, Mark.LIKED_EVENT.code, Mark.DISLIKED_EVENT.code);
+    private static final List<Integer> COMMENT_MARKS = Arrays.asList(Mark.LIKED_COMMENT.code, Mark.DISLIKED_COMMENT.code);
+
+    @Inject
+    private VisitorReactionRepository visitorReactionRepository;
+
+    private final Map<String, Marks> visitors = new ConcurrentHashMap<>();
+
+    private long idleMs;
+    private ScheduledExecutorService writer;
+
+    @PostConstruct
+    public void start() {
+        this.idleMs = DatabaseConfig.getLong("visitor.marks.idleMs", 1800000);
+
+        long flushIntervalMs = DatabaseConfig.getLong("visitor.marks.flushIntervalMs", 5000);
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "visitor-marks-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.writer != null) {
+            this.writer.shutdown();
+            try {
+                this.writer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.flush();
+    }
+
+    // True only the first time this visitor views the event
+    public boolean markViewed(String visitorId, Integer eventId) {
+        return this.update(visitorId, marks -> marks.add(Mark.VIEWED_EVENT, eventId));
+    }
+
+    // Liking again takes the like back; liking a disliked item replaces the dislike
+    public ReactionToggle like(String visitorId, ReactionTarget target, Integer id) {
+        Mark liked = target == ReactionTarget.EVENT ? Mark.LIKED_EVENT : Mark.LIKED_COMMENT;
+        Mark disliked = target == ReactionTarget.EVENT ? Mark.DISLIKED_EVENT : Mark.DISLIKED_COMMENT;
+        return this.update(visitorId, marks -> {
+            if (marks.remove(liked, id)) {
+                return new ReactionToggle("unliked", -1, 0, false, false);
+            }
+            int dislikeDelta = marks.remove(disliked, id) ? -1 : 0;
+            marks.add(liked, id);
+            return new ReactionToggle("liked", 1, dislikeDelta, true, false);
+        });
+    }
+
+    public ReactionToggle dislike(String visitorId, ReactionTarget target, Integer id) {
+        Mark liked = target == ReactionTarget.EVENT ? Mark.LIKED_EVENT : Mark.LIKED_COMMENT;
+        Mark disliked = target == ReactionTarget.EVENT ? Mark.DISLIKED_EVENT : Mark.DISLIKED_COMMENT;
+        return this.update(visitorId, marks -> {
+            if (marks.remove(disliked, id)) {
+                return new ReactionToggle("undisliked", 0, -1, false, false);
+            }
+            int likeDelta = marks.remove(liked, id) ? -1 : 0;
+            marks.add(disliked, id);
+            return new ReactionToggle("disliked", likeDelta, 1, false, true);
+        });
+    }
+
+    // Flags for the event and for whichever of the given comments the visitor reacted to, from a single lookup
+    public VisitorReactionFlags flags(String visitorId, Integer eventId, List<Integer> commentIds) {
+        if (visitorId == null) {
+            return new VisitorReactionFlags(eventId, false, false, false, new ArrayList<>(), new ArrayList<>());
+        }
+
+        Marks marks = this.marks(visitorId);
+        List<Integer> likedCommentIds = new ArrayList<>();
+        List<Integer> dislikedCommentIds = new ArrayList<>();
+        for (Integer commentId : commentIds) {
+            if (marks.has(Mark.LIKED_COMMENT, commentId)) {
+                likedCommentIds.add(commentId);
+            } else if (marks.has(Mark.DISLIKED_COMMENT, commentId)) {
+                dislikedCommentIds.add(commentId);
+            }
+        }
+        return new VisitorReactionFlags(eventId, marks.has(Mark.VIEWED_EVENT, eventId), marks.has(Mark.LIKED_EVENT, eventId),
+                marks.has(Mark.DISLIKED_EVENT, eventId), likedCommentIds, dislikedCommentIds);
+    }
+
+    // Run inside the unit of work that deletes the event; commentIds are its comments, removed by the cascade
+    public void deleteEventMarks(Integer eventId, List<Integer> commentIds) {
+        this.visitorReactionRepository.deleteMarks(EVENT_MARKS, Collections.singletonList(eventId));
+        this.visitorReactionRepository.deleteMarks(COMMENT_MARKS, commentIds);
+    }
+
+    public void deleteCommentMarks(Integer commentId) {
+        this.visitorReactionRepository.deleteMarks(COMMENT_MARKS, Collections.singletonList(commentId));
+    }
+
+    // After the delete commits: drops the targets from every cached visitor, pending writes included. Holding the
+    // flush lock keeps the writer from re-inserting them, and deleting again clears a flush that ran before the commit
+    public synchronized void forgetEvent(Integer eventId, List<Integer> commentIds) {
+        this.forget(EVENT_MARKS, Collections.singletonList(eventId));
+        this.forget(COMMENT_MARKS, commentIds);
+        this.deleteEventMarks(eventId, commentIds);
+    }
+
+    public synchronized void forgetComment(Integer commentId) {
+        this.forget(COMMENT_MARKS, Collections.singletonList(commentId));
+        this.deleteCommentMarks(commentId);
+    }
+
+    public int size() {
+        return this.visitors.size();
+    }
+
+    // Writes the current state of every mark touched since the last flush, then drops idle visitors
+    public synchronized void flush() {
+        List<VisitorMark> added = new ArrayList<>();
+        List<VisitorMark> removed = new ArrayList<>();
+        Map<String, long[]> taken = new HashMap<>();
+        for (String visitorId : this.visitors.keySet()) {
+            this.visitors.computeIfPresent(visitorId, (key, marks) -> {
+                long[] touched = marks.takeTouched();
+                if (touched != null) {
+                    taken.put(key, touched);
+                    for (long packed : touched) {
+                        Mark mark = Mark.values()[(int) (packed >>> 32)];
+                        int id = (int) packed;
+                        (marks.has(mark, id) ? added : removed).add(new VisitorMark(key, mark.code, id));
+                    }
+                }
+                return marks;
+            });
+        }
+
+        if (!taken.isEmpty() && !this.visitorReactionRepository.saveMarks(added, removed)) {
+            // Only this thread evicts, so the visitors are still here to take their changes back
+            for (Map.Entry<String, long[]> entry : taken.entrySet()) {
+                this.visitors.computeIfPresent(entry.getKey(), (key, marks) -> {
+                    marks.touchAll(entry.getValue());
+                    return marks;
+                });
+            }
+        }
+        this.evictIdle();
+    }
+
+    private void forget(List<Integer> markCodes, List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        for (String visitorId : this.visitors.keySet()) {
+            this.visitors.computeIfPresent(visitorId, (key, marks) -> {
+                for (Integer code : markCodes) {
+                    for (Integer id : ids) {
+                        marks.forget(Mark.fromCode(code), id);
+                    }
+                }
+                return marks;
+            });
+        }
+    }
+
+    private <T> T update(String visitorId, Function<Marks, T> change) {
+        Marks loaded = this.marks(visitorId);
+        AtomicReference<T> result = new AtomicReference<>();
+        // compute() serialises every change for one visitor and shares the bin lock with eviction
+        this.visitors.compute(visitorId, (key, marks) -> {
+            Marks target = marks == null ? loaded : marks;
+            result.set(change.apply(target));
+            target.lastUsedAt = System.currentTimeMillis();
+            return target;
+        });
+        return result.get();
+    }
+
+    // Loads outside the map lock; a visitor loaded twice at once keeps whichever copy landed first
+    private Marks marks(String visitorId) {
+        Marks marks = this.visitors.get(visitorId);
+        if (marks != null) {
+            marks.lastUsedAt = System.currentTimeMillis();
+            return marks;
+        }
+
+        Marks loaded = new Marks();
+        Map<Integer, int[]> stored = this.visitorReactionRepository.findMarks(visitorId);
+        if (stored != null) {
+            for (Map.Entry<Integer, int[]> entry : stored.entrySet()) {
+                Mark mark = Mark.fromCode(entry.getKey());
+                if (mark != null) {
+                    loaded.ids[mark.ordinal()] = entry.getValue();
+                }
+            }
+        }
+        Marks existing = this.visitors.putIfAbsent(visitorId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private void evictIdle() {
+        long idleBefore = System.currentTimeMillis() - this.idleMs;
+        for (String visitorId : this.visitors.keySet()) {
+            this.visitors.computeIfPresent(visitorId, (key, marks) ->
+                    marks.touched == null && marks.lastUsedAt < idleBefore ? null : marks);
+        }
+    }
+
+    // Mutated only inside compute() for its visitor; arrays are replaced rather than changed, so readers need no lock
+    private static final class Marks {
+        private final int[][] ids = new int[Mark.values().length][];
+        // Marks changed since the last flush, as ordinal << 32 | id
+        private Set<Long> touched;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+
+        private Marks() {
+            Arrays.fill(this.ids, NO_IDS);
+        }
+
+        private boolean has(Mark mark, int id) {
+            return Arrays.binarySearch(this.ids[mark.ordinal()], id) >= 0;
+        }
+
+        private boolean add(Mark mark, int id) {
+            int[] current = this.ids[mark.ordinal()];
+            int position = Arrays.binarySearch(current, id);
+            if (position >= 0) {
+                return false;
+            }
+            int insertAt = -position - 1;
+            int[] result = new int[current.length + 1];
+            System.arraycopy(current, 0, result, 0, insertAt);
+            result[insertAt] = id;
+            System.arraycopy(current, insertAt, result, insertAt + 1, current.length - insertAt);
+            this.ids[mark.ordinal()] = result;
+            this.touch(mark, id);
+            return true;
+        }
+
+        private boolean remove(Mark mark, int id) {
+            int[] current = this.ids[mark.ordinal()];
+            int position = Arrays.binarySearch(current, id);
+            if (position < 0) {
+                return false;
+            }
+            int[] result = new int[current.length - 1];
+            System.arraycopy(current, 0, result, 0, position);
+            System.arraycopy(current, position + 1, result, position, current.length - position - 1);
+            this.ids[mark.ordinal()] = result;
+            this.touch(mark, id);
+            return true;
+        }
+
+        // Removes the mark and any unwritten change to it, so the writer has nothing to put back
+        private void forget(Mark mark, int id) {
+            int[] current = this.ids[mark.ordinal()];
+            int position = Arrays.binarySearch(current, id);
+            if (position >= 0) {
+                int[] result = new int[current.length - 1];
+                System.arraycopy(current, 0, result, 0, position);
+                System.arraycopy(current, position + 1, result, position, current.length - position - 1);
+                this.ids[mark.ordinal()] = result;
+            }
+            if (this.touched != null) {
+                this.touched.remove(((long) mark.ordinal() << 32) | (id & 0xffffffffL));
+                if (this.touched.isEmpty()) {
+                    this.touched = null;
+                }
+            }
+        }
+
+        private void touch(Mark mark, int id) {
+            if (this.touched == null) {
+                this.touched = new HashSet<>();
+            }
+            this.touched.add(((long) mark.ordinal() << 32) | (id & 0xffffffffL));
+        }
+
+        private void touchAll(long[] packed) {
+            if (this.touched == null) {
+                this.touched = new HashSet<>();
+            }
+            for (long value : packed) {
+                this.touched.add(value);
+            }
+        }
+
+        private long[] takeTouched() {
+            if (this.touched == null) {
+                return null;
+            }
+            long[] packed = this.touched.stream().mapToLong(Long::longValue).toArray();
+            this.touched = null;
+            return packed;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package rs.raf.demo.counters;
+
+import rs.raf.demo.config.DatabaseConfig;
+import rs.raf.demo.entities.EventVisitors;
+import rs.raf.demo.repositories.UnitOfWork;
+import rs.raf.demo.repositories.visitor.VisitorSketchRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Approximate unique visitors per event, lifetime and per day. Visits only touch in-memory sketches; the flusher
+// merges changed sketches into MySQL and takes back whatever other nodes merged there in the meantime
+public class VisitorSketches {
+
+    @Inject
+    private VisitorSketchRepository visitorSketchRepository;
+
+    private final Map<SketchKey, Sketch> sketches = new ConcurrentHashMap<>();
+
+    private int dailyRetentionDays;
+    private long idleMs;
+    private LocalDate rolledOffBefore;
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void start() {
+        this.dailyRetentionDays = Math.max(1, DatabaseConfig.getInt("counters.visitors.dailyRetentionDays", 30));
+        this.idleMs = DatabaseConfig.getLong("counters.visitors.idleMs", 600000);
+
+        long flushIntervalMs = DatabaseConfig.getLong("counters.visitors.flushIntervalMs", 30000);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "visitor-sketch-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(() -> {
+            this.flush();
+            this.rollOffDailySketches();
+        }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.flusher != null) {
+            this.flusher.shutdown();
+            try {
+                this.flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.flush();
+    }
+
+    public void record(Integer eventId, String visitorId) {
+        long hash = HyperLogLog.hash(visitorId);
+        this.add(new SketchKey(eventId, null), hash);
+        this.add(new SketchKey(eventId, LocalDate.now()), hash);
+    }
+
+    public EventVisitors visitors(Integer eventId, int days) {
+        int windowDays = Math.max(1, Math.min(days, this.dailyRetentionDays));
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(windowDays - 1);
+
+        Map<LocalDate, byte[]> stored = this.visitorSketchRepository.findDailySketches(eventId, from);
+        HyperLogLog window = new HyperLogLog();
+        List<EventVisitors.Day> daily = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(today); day = day.plusDays(1)) {
+            HyperLogLog sketch = HyperLogLog.fromBytes(stored.get(day));
+            if (sketch == null) {
+                sketch = new HyperLogLog();
+            }
+            Sketch local = this.sketches.get(new SketchKey(eventId, day));
+            if (local != null) {
+                local.mergeInto(sketch);
+            }
+            daily.add(new EventVisitors.Day(day, sketch.estimate()));
+            window.merge(sketch);
+        }
+
+        return new EventVisitors(eventId, this.lifetime(eventId).estimate(), windowDays, window.estimate(),
+                daily, HyperLogLog.STANDARD_ERROR);
+    }
+
+    public synchronized void flush() {
+        Map<LocalDate, Map<Integer, HyperLogLog>> changedByDay = new HashMap<>();
+        Map<Integer, HyperLogLog> changedLifetime = new HashMap<>();
+        for (Map.Entry<SketchKey, Sketch> entry : this.sketches.entrySet()) {
+            HyperLogLog changed = entry.getValue().takeChanges();
+            if (changed != null) {
+                SketchKey key = entry.getKey();
+                (key.day == null ? changedLifetime : changedByDay.computeIfAbsent(key.day, day -> new HashMap<>()))
+                        .put(key.eventId, changed);
+            }
+        }
+
+        this.merge(null, changedLifetime);
+        for (Map.Entry<LocalDate, Map<Integer, HyperLogLog>> day : changedByDay.entrySet()) {
+            this.merge(day.getKey(), day.getValue());
+        }
+        this.evictIdle();
+    }
+
+    // Reads the stored sketches under row locks, so two nodes flushing the same event cannot lose each other's registers.
+    // Missing rows are created first: FOR UPDATE cannot lock a row that does not exist yet
+    private void merge(LocalDate day, Map<Integer, HyperLogLog> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Integer> eventIds = new ArrayList<>(changed.keySet());
+            this.visitorSketchRepository.createMissingSketches(day, eventIds, new HyperLogLog().toBytes());
+            UnitOfWork.run(() -> {
+                Map<Integer, byte[]> stored = this.visitorSketchRepository.findSketchesForUpdate(day, eventIds);
+                Map<Integer, byte[]> merged = new HashMap<>();
+                for (Map.Entry<Integer, byte[]> entry : stored.entrySet()) {
+                    HyperLogLog sketch = changed.get(entry.getKey());
+                    HyperLogLog storedSketch = HyperLogLog.fromBytes(entry.getValue());
+                    if (storedSketch != null) {
+                        sketch.merge(storedSketch);
+                    }
+                    merged.put(entry.getKey(), sketch.toBytes());
+                }
+                this.visitorSketchRepository.saveSketches(day, merged);
+            });
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            // Registers only ever grow, so handing the changes back makes the next flush retry them
+            for (Map.Entry<Integer, HyperLogLog> entry : changed.entrySet()) {
+                Sketch sketch = this.sketches.get(new SketchKey(entry.getKey(), day));
+                if (sketch != null) {
+                    sketch.giveBack(entry.getValue());
+                }
+            }
+            return;
+        }
+
+        for (Map.Entry<Integer, HyperLogLog> entry : changed.entrySet()) {
+            Sketch sketch = this.sketches.get(new SketchKey(entry.getKey(), day));
+            if (sketch != null) {
+                sketch.absorbStored(entry.getValue());
+            }
+        }
+    }
+
+    private HyperLogLog lifetime(Integer eventId) {
+        SketchKey key = new SketchKey(eventId, null);
+        Sketch sketch = this.sketches.computeIfAbsent(key, ignored -> new Sketch());
+        if (!sketch.isComplete()) {
+            HyperLogLog stored = HyperLogLog.fromBytes(this.visitorSketchRepository.findSketch(eventId, null));
+            sketch.absorbStored(stored == null ? new HyperLogLog() : stored);
+        }
+        return sketch.snapshot();
+    }
+
+    private void add(SketchKey key, long hash) {
+        // compute() shares the bin lock with eviction, so a visit never lands in a sketch that was just dropped
+        this.sketches.compute(key, (ignored, sketch) -> {
+            Sketch target = sketch == null ? new Sketch() : sketch;
+            target.add(hash);
+            return target;
+        });
+    }
+
+    private void evictIdle() {
+        long idleBefore = System.currentTimeMillis() - this.idleMs;
+        LocalDate today = LocalDate.now();
+        for (SketchKey key : this.sketches.keySet()) {
+            this.sketches.computeIfPresent(key, (ignored, sketch) ->
+                    sketch.isClean() && (sketch.lastUsedAt < idleBefore || (key.day != null && key.day.isBefore(today)))
+                            ? null : sketch);
+        }
+    }
+
+    // Once a day, drops the daily sketches that have left the retention window
+    private void rollOffDailySketches() {
+        LocalDate cutoff = LocalDate.now().minusDays(this.dailyRetentionDays - 1);
+        if (cutoff.equals(this.rolledOffBefore)) {
+            return;
+        }
+        this.visitorSketchRepository.deleteDailySketchesBefore(cutoff);
+        this.rolledOffBefore = cutoff;
+    }
+
+    private static final class SketchKey {
+        private final int eventId;
+        // Null for the lifetime sketch
+        private final LocalDate day;
+
+        private SketchKey(int eventId, LocalDate day) {
+            this.eventId = eventId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof SketchKey && ((SketchKey) other).eventId == this.eventId
+                    && Objects.equals(((SketchKey) other).day, this.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.eventId + Objects.hashCode(this.day);
+        }
+    }
+
+    private static final class Sketch {
+        private final HyperLogLog registers = new HyperLogLog();
+        // Registers grew since the last flush took its copy
+        private boolean dirty;
+        // Already includes what MySQL had, so reads need no query
+        private boolean complete;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+
+        private synchronized void add(long hash) {
+            if (this.registers.add(hash)) {
+                this.dirty = true;
+            }
+            this.lastUsedAt = System.currentTimeMillis();
+        }
+
+        private synchronized HyperLogLog takeChanges() {
+            if (!this.dirty) {
+                return null;
+            }
+            this.dirty = false;
+            return this.registers.copy();
+        }
+
+        private synchronized void giveBack(HyperLogLog changes) {
+            this.registers.merge(changes);
+            this.dirty = true;
+        }
+
+        private synchronized void absorbStored(HyperLogLog stored) {
+            this.registers.merge(stored);
+            this.complete = true;
+        }
+
+        private synchronized void mergeInto(HyperLogLog target) {
+            target.merge(this.registers);
+        }
+
+        private synchronized HyperLogLog snapshot() {
+            this.lastUsedAt = System.currentTimeMillis();
+            return this.registers.copy();
+        }
+
+        private synchronized boolean isComplete() {
+            return this.complete;
+        }
+
+        private synchronized boolean isClean() {
+            return !this.dirty;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package rs.raf.demo.entities;
+
+import java.util.List;
+import java.util.Map;
+
+// Everything the event detail page shows, gathered in one request. A section that failed or ran out of time is
+// null and named in failedSections, so the page can fall back to the single-purpose endpoint for it.
+public class EventPage {
+    private Event event;
+    private Boolean viewCounted;
+    private List<Comment> comments;
+    private String nextCommentCursor;
+    private Map<String, Object> rsvpStatus;
+    private List<Event> similarEvents;
+    private List<Event> mostReactedEvents;
+    private VisitorReactionFlags myReactions;
+    private List<String> failedSections;
+
+    public Event getEvent() {
+        return event;
+    }
+
+    public void setEvent(Event event) {
+        this.event = event;
+    }
+
+    public Boolean getViewCounted() {
+        return viewCounted;
+    }
+
+    public void setViewCounted(Boolean viewCounted) {
+        this.viewCounted = viewCounted;
+    }
+
+    public List<Comment> getComments() {
+        return comments;
+    }
+
+    public void setComments(List<Comment> comments) {
+        this.comments = comments;
+    }
+
+    public String getNextCommentCursor() {
+        return nextCommentCursor;
+    }
+
+    public void setNextCommentCursor(String nextCommentCursor) {
+        this.nextCommentCursor = nextCommentCursor;
+    }
+
+    public Map<String, Object> getRsvpStatus() {
+        return rsvpStatus;
+    }
+
+    public void setRsvpStatus(Map<String, Object> rsvpStatus) {
+        this.rsvpStatus = rsvpStatus;
+    }
+
+    public List<Event> getSimilarEvents() {
+        return similarEvents;
+    }
+
+    public void setSimilarEvents(List<Event> similarEvents) {
+        this.similarEvents = similarEvents;
+    }
+
+    public List<Event> getMostReactedEvents() {
+        return mostReactedEvents;
+    }
+
+    public void setMostReactedEvents(List<Event> mostReactedEvents) {
+        this.mostReactedEvents = mostReactedEvents;
+    }
+
+    public VisitorReactionFlags getMyReactions() {
+        return myReactions;
+    }
+
+    public void setMyReactions(VisitorReactionFlags myReactions) {
+        this.myReactions = myReactions;
+    }
+
+    public List<String> getFailedSections() {
+        return failedSections;
+    }
+
+    public void setFailedSections(List<String> failedSections) {
+        this.failedSections = failedSections;
+    }
+}
@@ -0,0 +1,67 @@
+package rs.raf.demo.entities;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Approximate counts from HyperLogLog sketches; each is within about standardError of the true value
+public class EventVisitors {
+    private final Integer eventId;
+    private final long uniqueVisitors;
+    private final int windowDays;
+    private final long windowUniqueVisitors;
+    private final List<Day> daily;
+    private final double standardError;
+
+    public EventVisitors(Integer eventId, long uniqueVisitors, int windowDays, long windowUniqueVisitors,
+                         List<Day> daily, double standardError) {
+        this.eventId = eventId;
+        this.uniqueVisitors = uniqueVisitors;
+        this.windowDays = windowDays;
+        this.windowUniqueVisitors = windowUniqueVisitors;
+        this.daily = daily;
+        this.standardError = standardError;
+    }
+
+    public Integer getEventId() {
+        return eventId;
+    }
+
+    public long getUniqueVisitors() {
+        return uniqueVisitors;
+    }
+
+    public int getWindowDays() {
+        return windowDays;
+    }
+
+    // Visitors seen on any day of the window, each counted once
+    public long getWindowUniqueVisitors() {
+        return windowUniqueVisitors;
+    }
+
+    public List<Day> getDaily() {
+        return daily;
+    }
+
+    public double getStandardError() {
+        return standardError;
+    }
+
+    public static class Day {
+        private final LocalDate day;
+        private final long uniqueVisitors;
+
+        public Day(LocalDate day, long uniqueVisitors) {
+            this.day = day;
+            this.uniqueVisitors = uniqueVisitors;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public long getUniqueVisitors() {
+            return uniqueVisitors;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package rs.raf.demo.entities;
+
+public class RSVPAdmission {
+
+    public enum Status {
+        ADMITTED,
+        ALREADY_REGISTERED,
+        FULL,
+        EVENT_NOT_FOUND,
+        FAILED
+    }
+
+    private final Status status;
+    private final RSVP rsvp;
+    private final int currentCount;
+    private final Integer maxCapacity;
+
+    public RSVPAdmission(Status status, RSVP rsvp, int currentCount, Integer maxCapacity) {
+        this.status = status;
+        this.rsvp = rsvp;
+        this.currentCount = currentCount;
+        this.maxCapacity = maxCapacity;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public RSVP getRsvp() {
+        return rsvp;
+    }
+
+    public int getCurrentCount() {
+        return currentCount;
+    }
+
+    public Integer getMaxCapacity() {
+        return maxCapacity;
+    }
+}
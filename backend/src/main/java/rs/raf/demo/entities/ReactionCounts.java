@@ -0,0 +1,23 @@
+package rs.raf.demo.entities;
+
+public class ReactionCounts {
+    private final int likeCount;
+    private final int dislikeCount;
+
+    public ReactionCounts(int likeCount, int dislikeCount) {
+        this.likeCount = likeCount;
+        this.dislikeCount = dislikeCount;
+    }
+
+    public int getLikeCount() {
+        return likeCount;
+    }
+
+    public int getDislikeCount() {
+        return dislikeCount;
+    }
+
+    public boolean isZero() {
+        return likeCount == 0 && dislikeCount == 0;
+    }
+}
@@ -0,0 +1,53 @@
+package rs.raf.demo.entities;
+
+// Outcome of a like/dislike toggle for one visitor: the deltas to apply to the counts, the resulting state and,
+// once applied, the resulting counts
+public class ReactionToggle {
+    private final String action;
+    private final int likeDelta;
+    private final int dislikeDelta;
+    private final boolean liked;
+    private final boolean disliked;
+    private final ReactionCounts counts;
+
+    public ReactionToggle(String action, int likeDelta, int dislikeDelta, boolean liked, boolean disliked) {
+        this(action, likeDelta, dislikeDelta, liked, disliked, null);
+    }
+
+    private ReactionToggle(String action, int likeDelta, int dislikeDelta, boolean liked, boolean disliked, ReactionCounts counts) {
+        this.action = action;
+        this.likeDelta = likeDelta;
+        this.dislikeDelta = dislikeDelta;
+        this.liked = liked;
+        this.disliked = disliked;
+        this.counts = counts;
+    }
+
+    public ReactionToggle withCounts(ReactionCounts counts) {
+        return new ReactionToggle(this.action, this.likeDelta, this.dislikeDelta, this.liked, this.disliked, counts);
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public int getLikeDelta() {
+        return likeDelta;
+    }
+
+    public int getDislikeDelta() {
+        return dislikeDelta;
+    }
+
+    public boolean isLiked() {
+        return liked;
+    }
+
+    public boolean isDisliked() {
+        return disliked;
+    }
+
+    public ReactionCounts getCounts() {
+        return counts;
+    }
+}
@@ -0,0 +1,26 @@
+package rs.raf.demo.entities;
+
+// One stored visitor_reaction row: the visitor viewed, liked or disliked the target, depending on mark
+public class VisitorMark {
+    private final String visitorId;
+    private final int mark;
+    private final int targetId;
+
+    public VisitorMark(String visitorId, int mark, int targetId) {
+        this.visitorId = visitorId;
+        this.mark = mark;
+        this.targetId = targetId;
+    }
+
+    public String getVisitorId() {
+        return visitorId;
+    }
+
+    public int getMark() {
+        return mark;
+    }
+
+    public int getTargetId() {
+        return targetId;
+    }
+}
@@ -0,0 +1,47 @@
+package rs.raf.demo.entities;
+
+import java.util.List;
+
+// What the current visitor has done on an event detail page; the comment lists hold only ids that were asked about
+public class VisitorReactionFlags {
+    private final Integer eventId;
+    private final boolean hasViewed;
+    private final boolean hasLiked;
+    private final boolean hasDisliked;
+    private final List<Integer> likedCommentIds;
+    private final List<Integer> dislikedCommentIds;
+
+    public VisitorReactionFlags(Integer eventId, boolean hasViewed, boolean hasLiked, boolean hasDisliked,
+                                List<Integer> likedCommentIds, List<Integer> dislikedCommentIds) {
+        this.eventId = eventId;
+        this.hasViewed = hasViewed;
+        this.hasLiked = hasLiked;
+        this.hasDisliked = hasDisliked;
+        this.likedCommentIds = likedCommentIds;
+        this.dislikedCommentIds = dislikedCommentIds;
+    }
+
+    public Integer getEventId() {
+        return eventId;
+    }
+
+    public boolean getHasViewed() {
+        return hasViewed;
+    }
+
+    public boolean getHasLiked() {
+        return hasLiked;
+    }
+
+    public boolean getHasDisliked() {
+        return hasDisliked;
+    }
+
+    public List<Integer> getLikedCommentIds() {
+        return likedCommentIds;
+    }
+
+    public List<Integer> getDislikedCommentIds() {
+        return dislikedCommentIds;
+    }
+}
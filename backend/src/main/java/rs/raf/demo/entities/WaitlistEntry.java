@@ -0,0 +1,66 @@
+package rs.raf.demo.entities;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.LocalDateTime;
+
+public class WaitlistEntry {
+    private Integer id;
+    private String userIdentifier;
+    private Integer eventId;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime joinedAt;
+
+    // 1 for the next person to be promoted
+    private int position;
+
+    public WaitlistEntry() {
+    }
+
+    public WaitlistEntry(Integer id, String userIdentifier, Integer eventId, LocalDateTime joinedAt) {
+        this.id = id;
+        this.userIdentifier = userIdentifier;
+        this.eventId = eventId;
+        this.joinedAt = joinedAt;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getUserIdentifier() {
+        return userIdentifier;
+    }
+
+    public void setUserIdentifier(String userIdentifier) {
+        this.userIdentifier = userIdentifier;
+    }
+
+    public Integer getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(Integer eventId) {
+        this.eventId = eventId;
+    }
+
+    public LocalDateTime getJoinedAt() {
+        return joinedAt;
+    }
+
+    public void setJoinedAt(LocalDateTime joinedAt) {
+        this.joinedAt = joinedAt;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+}
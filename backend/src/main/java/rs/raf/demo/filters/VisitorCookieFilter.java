@@ -0,0 +1,38 @@
+package rs.raf.demo.filters;
+
+import rs.raf.demo.services.VisitorService;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+
+@Provider
+public class VisitorCookieFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    @Inject
+    VisitorService visitorService;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        Cookie cookie = requestContext.getCookies().get(VisitorService.COOKIE_NAME);
+        String visitorId = cookie == null ? null : this.visitorService.verify(cookie.getValue());
+        if (visitorId != null) {
+            requestContext.setProperty(VisitorService.VISITOR_ATTRIBUTE, visitorId);
+        }
+    }
+
+    // Only requests that needed a visitor id and came without a valid cookie get one
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) throws IOException {
+        Object issued = requestContext.getProperty(VisitorService.ISSUED_COOKIE_ATTRIBUTE);
+        if (issued != null) {
+            responseContext.getHeaders().add(HttpHeaders.SET_COOKIE, issued);
+        }
+    }
+}
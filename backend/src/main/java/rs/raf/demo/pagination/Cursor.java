@@ -0,0 +1,53 @@
+package rs.raf.demo.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Position of the last row on a page; listings seek past it instead of skipping OFFSET rows
+public final class Cursor {
+
+    private final LocalDateTime timestamp;
+    private final int id;
+
+    public Cursor(LocalDateTime timestamp, int id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public Timestamp getSqlTimestamp() {
+        return Timestamp.valueOf(timestamp);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = this.timestamp + "|" + this.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns null for anything that was not produced by encode()
+    public static Cursor decode(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value.trim()), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator <= 0) {
+                return null;
+            }
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)), Integer.parseInt(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+    }
+}
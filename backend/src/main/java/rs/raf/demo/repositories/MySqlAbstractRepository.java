@@ -1,26 +1,20 @@
 package rs.raf.demo.repositories;
 
-import java.io.IOException;
-import java.io.InputStream;
+import rs.raf.demo.config.DatabaseConfig;
+import rs.raf.demo.repositories.pool.ConnectionPool;
+
 import java.sql.*;
-import java.util.Optional;
-import java.util.Properties;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
 
 abstract public class MySqlAbstractRepository {
-    private static Properties dbProperties;
-    
-    static {
-        dbProperties = new Properties();
-        try (InputStream input = MySqlAbstractRepository.class.getClassLoader().getResourceAsStream("database.properties")) {
-            if (input == null) {
-                System.err.println("Warning: database.properties not found. Using default values. Copy database.properties.example to database.properties");
-            } else {
-                dbProperties.load(input);
-            }
-        } catch (IOException e) {
-            System.err.println("Error loading database properties: " + e.getMessage());
-        }
-    }
+    private static final ConnectionPool connectionPool = new ConnectionPool(
+            "jdbc:mysql://" + DatabaseConfig.getString("db.host", "localhost") + ":" + DatabaseConfig.getString("db.port", "3306")
+                    + "/" + DatabaseConfig.getString("db.name", "raf_event_booker"),
+            DatabaseConfig.getString("db.username", "root"),
+            DatabaseConfig.getString("db.password", "root")
+    );
 
     public MySqlAbstractRepository() {
         try {
@@ -30,35 +24,96 @@ abstract public class MySqlAbstractRepository {
         }
     }
 
+    public static ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
     protected Connection newConnection() throws SQLException {
-        return DriverManager.getConnection(
-                "jdbc:mysql://" + this.getHost() + ":" + this.getPort() + "/" + this.getDatabaseName(), this.getUsername(), this.getPassword()
-        );
+        Connection connection = UnitOfWork.currentConnection();
+        return connection != null ? connection : connectionPool.getConnection();
+    }
+
+    // IN lists are padded to the next power of two so the statement cache only ever sees a few shapes
+    protected String inClause(int count) {
+        int padded = this.paddedSize(count);
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < padded; i++) {
+            builder.append(i == 0 ? "?" : ", ?");
+        }
+        return builder.append(")").toString();
+    }
+
+    protected int bindIds(PreparedStatement preparedStatement, int startIndex, List<Integer> ids) throws SQLException {
+        int padded = this.paddedSize(ids.size());
+        for (int i = 0; i < padded; i++) {
+            preparedStatement.setInt(startIndex + i, ids.get(Math.min(i, ids.size() - 1)));
+        }
+        return startIndex + padded;
+    }
+
+    protected int bindStrings(PreparedStatement preparedStatement, int startIndex, List<String> values) throws SQLException {
+        int padded = this.paddedSize(values.size());
+        for (int i = 0; i < padded; i++) {
+            preparedStatement.setString(startIndex + i, values.get(Math.min(i, values.size() - 1)));
+        }
+        return startIndex + padded;
+    }
+
+    // Per-row values for multi-row UPDATEs, padded like inClause; duplicate WHENs never match twice
+    protected String caseById(int count) {
+        int padded = this.paddedSize(count);
+        StringBuilder builder = new StringBuilder("CASE id");
+        for (int i = 0; i < padded; i++) {
+            builder.append(" WHEN ? THEN ?");
+        }
+        return builder.append(" ELSE 0 END").toString();
+    }
+
+    protected <V> int bindCase(PreparedStatement preparedStatement, int startIndex, List<Integer> ids,
+                               Map<Integer, V> values, ToLongFunction<V> value) throws SQLException {
+        int padded = this.paddedSize(ids.size());
+        int index = startIndex;
+        for (int i = 0; i < padded; i++) {
+            Integer id = ids.get(Math.min(i, ids.size() - 1));
+            preparedStatement.setInt(index++, id);
+            preparedStatement.setLong(index++, value.applyAsLong(values.get(id)));
+        }
+        return index;
+    }
+
+    protected int paddedSize(int count) {
+        int padded = 1;
+        while (padded < count) {
+            padded <<= 1;
+        }
+        return padded;
     }
 
     protected String getHost() {
-        return dbProperties.getProperty("db.host", "localhost");
+        return DatabaseConfig.getString("db.host", "localhost");
     }
 
     protected int getPort() {
-        return Integer.parseInt(dbProperties.getProperty("db.port", "3306"));
+        return DatabaseConfig.getInt("db.port", 3306);
     }
 
     protected String getDatabaseName() {
-        return dbProperties.getProperty("db.name", "raf_event_booker");
+        return DatabaseConfig.getString("db.name", "raf_event_booker");
     }
 
     protected String getUsername() {
-        return dbProperties.getProperty("db.username", "root");
+        return DatabaseConfig.getString("db.username", "root");
     }
 
     protected String getPassword() {
-        return dbProperties.getProperty("db.password", "root");
+        return DatabaseConfig.getString("db.password", "root");
     }
 
     protected void closeStatement(Statement statement) {
         try {
-            Optional.of(statement).get().close();
+            if (statement != null) {
+                statement.close();
+            }
         } catch (SQLException throwables) {
             throwables.printStackTrace();
         }
@@ -66,7 +121,9 @@ abstract public class MySqlAbstractRepository {
 
     protected void closeResultSet(ResultSet resultSet) {
         try {
-            Optional.of(resultSet).get().close();
+            if (resultSet != null) {
+                resultSet.close();
+            }
         } catch (SQLException throwables) {
             throwables.printStackTrace();
         }
@@ -74,7 +131,9 @@ abstract public class MySqlAbstractRepository {
 
     protected void closeConnection(Connection connection) {
         try {
-            Optional.of(connection).get().close();
+            if (connection != null) {
+                connection.close();
+            }
         } catch (SQLException throwables) {
             throwables.printStackTrace();
         }
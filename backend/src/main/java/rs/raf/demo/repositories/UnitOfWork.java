@@ -0,0 +1,209 @@
+package rs.raf.demo.repositories;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Binds one connection to the current thread so every repository call inside run() shares a single transaction.
+// Repositories keep their usual open/close code: inside a unit of work close() and commit() are no-ops,
+// and any SQLException they swallow still marks the whole unit for rollback.
+public final class UnitOfWork {
+
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final Connection connection;
+    private final Connection sharedConnection;
+    private final List<Runnable> afterCommitHooks = new ArrayList<>();
+    private SQLException failure;
+    private boolean rollbackOnly;
+
+    private UnitOfWork(Connection connection) {
+        this.connection = connection;
+        this.sharedConnection = (Connection) Proxy.newProxyInstance(
+                UnitOfWork.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandle());
+    }
+
+    public static void run(Runnable work) {
+        run(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Nested calls join the unit of work that is already open on this thread
+    public static <T> T run(Supplier<T> work) {
+        if (CURRENT.get() != null) {
+            return work.get();
+        }
+
+        UnitOfWork unitOfWork;
+        Connection connection = null;
+        try {
+            connection = MySqlAbstractRepository.getConnectionPool().getConnection();
+            connection.setAutoCommit(false);
+            unitOfWork = new UnitOfWork(connection);
+        } catch (SQLException e) {
+            // Hand the connection back, or its pool permit is gone for good
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException closeException) {
+                    closeException.printStackTrace();
+                }
+            }
+            throw new IllegalStateException("Could not start transaction", e);
+        }
+
+        CURRENT.set(unitOfWork);
+        T result;
+        try {
+            try {
+                result = work.get();
+            } catch (RuntimeException e) {
+                unitOfWork.rollback();
+                throw e;
+            }
+            unitOfWork.commit();
+        } finally {
+            CURRENT.remove();
+            unitOfWork.release();
+        }
+
+        for (Runnable hook : unitOfWork.afterCommitHooks) {
+            try {
+                hook.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        return result;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    // In-memory state (caches, indexes) must only change once the rows are really there
+    public static void afterCommit(Runnable hook) {
+        UnitOfWork unitOfWork = CURRENT.get();
+        if (unitOfWork == null) {
+            hook.run();
+        } else {
+            unitOfWork.afterCommitHooks.add(hook);
+        }
+    }
+
+    static Connection currentConnection() {
+        UnitOfWork unitOfWork = CURRENT.get();
+        return unitOfWork == null ? null : unitOfWork.sharedConnection;
+    }
+
+    private void commit() {
+        if (this.rollbackOnly) {
+            this.rollback();
+            throw new IllegalStateException("Transaction rolled back"
+                    + (this.failure == null ? "" : ": " + this.failure.getMessage()), this.failure);
+        }
+        try {
+            this.connection.commit();
+        } catch (SQLException e) {
+            this.afterCommitHooks.clear();
+            throw new IllegalStateException("Could not commit transaction", e);
+        }
+    }
+
+    private void rollback() {
+        this.afterCommitHooks.clear();
+        try {
+            this.connection.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void release() {
+        try {
+            this.connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Object invokeAndTrack(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException && this.failure == null) {
+                this.failure = (SQLException) e.getCause();
+                this.rollbackOnly = true;
+            }
+            throw e.getCause();
+        }
+    }
+
+    private final class ConnectionHandle implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "commit":
+                case "setAutoCommit":
+                    return null;
+                case "rollback":
+                    if (args == null) {
+                        UnitOfWork.this.rollbackOnly = true;
+                        return null;
+                    }
+                    break;
+                case "isClosed":
+                    return false;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+
+            Object result = UnitOfWork.this.invokeAndTrack(UnitOfWork.this.connection, method, args);
+            if (result instanceof Statement && method.getReturnType().isInterface()) {
+                return Proxy.newProxyInstance(
+                        UnitOfWork.class.getClassLoader(),
+                        new Class<?>[]{method.getReturnType()},
+                        new StatementHandle(result));
+            }
+            return result;
+        }
+    }
+
+    private final class StatementHandle implements InvocationHandler {
+        private final Object statement;
+
+        private StatementHandle(Object statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                    return UnitOfWork.this.sharedConnection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return UnitOfWork.this.invokeAndTrack(this.statement, method, args);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package rs.raf.demo.repositories.category;
+
+import rs.raf.demo.cache.ReferenceCache;
+import rs.raf.demo.cache.ReferenceCacheStatistics;
+import rs.raf.demo.entities.Category;
+import rs.raf.demo.repositories.UnitOfWork;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+// Categories are loaded once and served from memory; every write refreshes the touched row from MySQL
+public class CachingCategoryRepository implements CategoryRepository {
+
+    @Inject
+    private MySqlCategoryRepository delegate;
+
+    private final ReferenceCache<Category> cache = new ReferenceCache<>("categories", Integer.MAX_VALUE,
+            Category::getId, Category::getName,
+            category -> new Category(category.getId(), category.getName(), category.getDescription()),
+            category -> 16 + 16 + ReferenceCache.stringBytes(category.getName()) + ReferenceCache.stringBytes(category.getDescription()));
+
+    @PostConstruct
+    public void start() {
+        this.cache.replaceAll(this.delegate.allCategories());
+    }
+
+    @Override
+    public Category addCategory(Category category) {
+        Category savedCategory = this.delegate.addCategory(category);
+        if (savedCategory.getId() != null) {
+            this.refreshAfterCommit(savedCategory.getId());
+        }
+        return savedCategory;
+    }
+
+    @Override
+    public List<Category> allCategories() {
+        List<Category> categories = this.cache.values();
+        if (categories == null) {
+            categories = this.delegate.allCategories();
+            this.cache.replaceAll(categories);
+            return categories;
+        }
+        categories.sort(Comparator.comparing(Category::getName, String.CASE_INSENSITIVE_ORDER));
+        return categories;
+    }
+
+    @Override
+    public Category findCategory(Integer id) {
+        Category category = this.cache.get(id);
+        if (category != null) {
+            return category;
+        }
+        long generation = this.cache.generation();
+        category = this.delegate.findCategory(id);
+        this.load(category, generation);
+        return category;
+    }
+
+    @Override
+    public List<Category> findCategoriesByIds(Collection<Integer> ids) {
+        List<Integer> missing = new ArrayList<>();
+        List<Category> categories = this.cache.getAll(ids, missing);
+        if (!missing.isEmpty()) {
+            long generation = this.cache.generation();
+            for (Category category : this.delegate.findCategoriesByIds(missing)) {
+                this.load(category, generation);
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+
+    @Override
+    public Category findCategoryByName(String name) {
+        Category category = this.cache.getByName(name);
+        if (category != null) {
+            return category;
+        }
+        long generation = this.cache.generation();
+        category = this.delegate.findCategoryByName(name);
+        this.load(category, generation);
+        return category;
+    }
+
+    @Override
+    public Category updateCategory(Category category) {
+        Category updatedCategory = this.delegate.updateCategory(category);
+        this.refreshAfterCommit(category.getId());
+        return updatedCategory;
+    }
+
+    @Override
+    public void deleteCategory(Integer id) {
+        this.delegate.deleteCategory(id);
+        // The delete fails while events still use the category, so check what is actually left
+        this.refreshAfterCommit(id);
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return this.findCategory(id) != null;
+    }
+
+    @Override
+    public boolean existsByName(String name) {
+        return this.findCategoryByName(name) != null;
+    }
+
+    @Override
+    public boolean hasEvents(Integer categoryId) {
+        return this.delegate.hasEvents(categoryId);
+    }
+
+    // Rows read inside a transaction may still be rolled back, so only committed state is cached
+    private void load(Category category, long generation) {
+        if (!UnitOfWork.isActive()) {
+            this.cache.load(category, generation);
+        }
+    }
+
+    private void refreshAfterCommit(Integer id) {
+        UnitOfWork.afterCommit(() -> this.cache.refresh(id, this.delegate.findCategory(id)));
+    }
+
+    public ReferenceCacheStatistics getCacheStatistics() {
+        return this.cache.getStatistics();
+    }
+}
@@ -2,12 +2,14 @@ package rs.raf.demo.repositories.category;
 
 import rs.raf.demo.entities.Category;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CategoryRepository {
     public Category addCategory(Category category);
     public List<Category> allCategories();
     public Category findCategory(Integer id);
+    public List<Category> findCategoriesByIds(Collection<Integer> ids);
     public Category findCategoryByName(String name);
     public Category updateCategory(Category category);
     public void deleteCategory(Integer id);
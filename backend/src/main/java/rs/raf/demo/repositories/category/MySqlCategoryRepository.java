@@ -5,6 +5,7 @@ import rs.raf.demo.repositories.MySqlAbstractRepository;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class MySqlCategoryRepository extends MySqlAbstractRepository implements CategoryRepository {
@@ -103,6 +104,43 @@ public class MySqlCategoryRepository extends MySqlAbstractRepository implements
         return category;
     }
 
+    @Override
+    public List<Category> findCategoriesByIds(Collection<Integer> ids) {
+        List<Category> categories = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return categories;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            List<Integer> idList = new ArrayList<>(ids);
+            preparedStatement = connection.prepareStatement("SELECT * FROM category WHERE id IN " + this.inClause(idList.size()));
+            this.bindIds(preparedStatement, 1, idList);
+            resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                categories.add(new Category(
+                    resultSet.getInt("id"),
+                    resultSet.getString("name"),
+                    resultSet.getString("description")
+                ));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return categories;
+    }
+
     @Override
     public Category updateCategory(Category category) {
         Connection connection = null;
@@ -1,15 +1,20 @@
 package rs.raf.demo.repositories.comment;
 
 import rs.raf.demo.entities.Comment;
+import rs.raf.demo.entities.ReactionCounts;
+import rs.raf.demo.pagination.Cursor;
 
 import java.util.List;
+import java.util.Map;
 
 public interface CommentRepository {
     public Comment addComment(Comment comment);
     public List<Comment> allComments();
     public Comment findComment(Integer id);
     public List<Comment> findCommentsByEventId(Integer eventId);
+    public List<Integer> findCommentIdsByEventId(Integer eventId);
     public List<Comment> findCommentsByEventIdPaginated(Integer eventId, int offset, int limit);
+    public List<Comment> findCommentsByEventIdAfter(Integer eventId, Cursor cursor, int limit);
     public List<Comment> findCommentsByEventId(Integer eventId, int page, int limit);
     public Comment updateComment(Comment comment);
     public void deleteComment(Integer id);
@@ -22,4 +27,6 @@ public interface CommentRepository {
     public void decrementLikes(Integer commentId);
     public void incrementDislikes(Integer commentId);
     public void decrementDislikes(Integer commentId);
+    public boolean applyReactionDeltas(Map<Integer, ReactionCounts> deltas);
+    public ReactionCounts findReactionCounts(Integer commentId);
 }
@@ -1,15 +1,21 @@
 package rs.raf.demo.repositories.comment;
 
 import rs.raf.demo.entities.Comment;
+import rs.raf.demo.entities.ReactionCounts;
+import rs.raf.demo.pagination.Cursor;
 import rs.raf.demo.repositories.MySqlAbstractRepository;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public class MySqlCommentRepository extends MySqlAbstractRepository implements CommentRepository {
 
+    private static final int FLUSH_CHUNK = 128;
+
     @Override
     public Comment addComment(Comment comment) {
         Connection connection = null;
@@ -215,6 +221,34 @@ public class MySqlCommentRepository extends MySqlAbstractRepository implements C
         }
     }
 
+    @Override
+    public List<Integer> findCommentIdsByEventId(Integer eventId) {
+        List<Integer> ids = new ArrayList<>();
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement("SELECT id FROM comment WHERE event_id = ?");
+            preparedStatement.setInt(1, eventId);
+            resultSet = preparedStatement.executeQuery();
+            while (resultSet.next()) {
+                ids.add(resultSet.getInt("id"));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return ids;
+    }
+
     @Override
     public void deleteCommentsByEventId(Integer eventId) {
         Connection connection = null;
@@ -321,6 +355,48 @@ public class MySqlCommentRepository extends MySqlAbstractRepository implements C
         return comments;
     }
 
+    @Override
+    public List<Comment> findCommentsByEventIdAfter(Integer eventId, Cursor cursor, int limit) {
+        List<Comment> comments = new ArrayList<>();
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            if (cursor == null) {
+                preparedStatement = connection.prepareStatement(
+                    "SELECT * FROM comment WHERE event_id = ? ORDER BY created_at DESC, id DESC LIMIT ?"
+                );
+                preparedStatement.setInt(1, eventId);
+                preparedStatement.setInt(2, limit);
+            } else {
+                preparedStatement = connection.prepareStatement(
+                    "SELECT * FROM comment WHERE event_id = ? AND (created_at < ? OR (created_at = ? AND id < ?)) ORDER BY created_at DESC, id DESC LIMIT ?"
+                );
+                preparedStatement.setInt(1, eventId);
+                preparedStatement.setTimestamp(2, cursor.getSqlTimestamp());
+                preparedStatement.setTimestamp(3, cursor.getSqlTimestamp());
+                preparedStatement.setInt(4, cursor.getId());
+                preparedStatement.setInt(5, limit);
+            }
+            resultSet = preparedStatement.executeQuery();
+            while (resultSet.next()) {
+                comments.add(mapResultSetToComment(resultSet));
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return comments;
+    }
+
     @Override
     public void incrementLikes(Integer commentId) {
         Connection connection = null;
@@ -397,6 +473,76 @@ public class MySqlCommentRepository extends MySqlAbstractRepository implements C
         }
     }
 
+    // Net like/dislike deltas from the reaction buffer; counts never go below zero
+    @Override
+    public boolean applyReactionDeltas(Map<Integer, ReactionCounts> deltas) {
+        if (deltas == null || deltas.isEmpty()) {
+            return true;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = this.newConnection();
+            connection.setAutoCommit(false);
+
+            List<Integer> ids = new ArrayList<>(deltas.keySet());
+            Collections.sort(ids);
+            for (int start = 0; start < ids.size(); start += FLUSH_CHUNK) {
+                List<Integer> chunk = ids.subList(start, Math.min(ids.size(), start + FLUSH_CHUNK));
+
+                preparedStatement = connection.prepareStatement(
+                    "UPDATE comment SET like_count = GREATEST(0, like_count + " + this.caseById(chunk.size()) + "), " +
+                    "dislike_count = GREATEST(0, dislike_count + " + this.caseById(chunk.size()) + ") WHERE id IN " + this.inClause(chunk.size()));
+                int index = this.bindCase(preparedStatement, 1, chunk, deltas, ReactionCounts::getLikeCount);
+                index = this.bindCase(preparedStatement, index, chunk, deltas, ReactionCounts::getDislikeCount);
+                this.bindIds(preparedStatement, index, chunk);
+                preparedStatement.executeUpdate();
+                this.closeStatement(preparedStatement);
+                preparedStatement = null;
+            }
+
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeConnection(connection);
+        }
+    }
+
+    // Null when the comment does not exist
+    @Override
+    public ReactionCounts findReactionCounts(Integer id) {
+        ReactionCounts counts = null;
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement("SELECT like_count, dislike_count FROM comment WHERE id = ?");
+            preparedStatement.setInt(1, id);
+            resultSet = preparedStatement.executeQuery();
+
+            if (resultSet.next()) {
+                counts = new ReactionCounts(resultSet.getInt("like_count"), resultSet.getInt("dislike_count"));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return counts;
+    }
+
     private Comment mapResultSetToComment(ResultSet resultSet) throws SQLException {
         LocalDateTime createdAt = resultSet.getTimestamp("created_at").toLocalDateTime();
         
@@ -1,13 +1,18 @@
 package rs.raf.demo.repositories.event;
 
 import rs.raf.demo.entities.Event;
+import rs.raf.demo.entities.ReactionCounts;
+import rs.raf.demo.pagination.Cursor;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 public interface EventRepository {
     Event addEvent(Event event);
     List<Event> allEvents();
     List<Event> allEventsPaginated(int offset, int limit);
+    List<Event> allEventsAfter(Cursor cursor, int limit);
     Event findEvent(Integer id);
     Event updateEvent(Event event);
     void deleteEvent(Integer id);
@@ -21,6 +26,7 @@ public interface EventRepository {
     List<Event> findEventsByTag(Integer tagId);
     List<Event> findEventsByTagPaginated(Integer tagId, int offset, int limit);
     List<Event> findEventsByAuthor(Integer authorId);
+    List<Event> findEventsByIds(List<Integer> ids);
     
     // Home page and most visited methods
     List<Event> findLatestEvents(int limit);
@@ -31,12 +37,19 @@ public interface EventRepository {
     
     // View and reaction methods
     void incrementViews(Integer eventId);
+    boolean addViews(Map<Integer, Long> viewDeltas, LocalDate day);
+    int deleteViewBucketsBefore(LocalDate day);
     void incrementLikes(Integer eventId);
     void incrementDislikes(Integer eventId);
     void decrementLikes(Integer eventId);
     void decrementDislikes(Integer eventId);
+    boolean applyReactionDeltas(Map<Integer, ReactionCounts> deltas);
+    ReactionCounts findReactionCounts(Integer eventId);
 
     int eventCount();
+    int countSearch(String searchTerm);
+    int countByCategory(Integer categoryId);
+    int countByTag(Integer tagId);
     
     // Capacity and RSVP related
     int getCurrentRSVPCount(Integer eventId);
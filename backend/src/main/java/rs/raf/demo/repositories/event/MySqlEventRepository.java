@@ -1,15 +1,24 @@
 package rs.raf.demo.repositories.event;
 
 import rs.raf.demo.entities.Event;
+import rs.raf.demo.entities.ReactionCounts;
+import rs.raf.demo.pagination.Cursor;
 import rs.raf.demo.repositories.MySqlAbstractRepository;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class MySqlEventRepository extends MySqlAbstractRepository implements EventRepository {
 
+    private static final int FLUSH_CHUNK = 128;
+    private static final int PURGE_CHUNK = 5000;
+
     @Override
     public Event addEvent(Event event) {
         Connection connection = null;
@@ -112,6 +121,46 @@ public class MySqlEventRepository extends MySqlAbstractRepository implements Eve
         return events;
     }
 
+    @Override
+    public List<Event> allEventsAfter(Cursor cursor, int limit) {
+        List<Event> events = new ArrayList<>();
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            if (cursor == null) {
+                preparedStatement = connection.prepareStatement(
+                    "SELECT * FROM event ORDER BY created_at DESC, id DESC LIMIT ?"
+                );
+                preparedStatement.setInt(1, limit);
+            } else {
+                preparedStatement = connection.prepareStatement(
+                    "SELECT * FROM event WHERE created_at < ? OR (created_at = ? AND id < ?) ORDER BY created_at DESC, id DESC LIMIT ?"
+                );
+                preparedStatement.setTimestamp(1, cursor.getSqlTimestamp());
+                preparedStatement.setTimestamp(2, cursor.getSqlTimestamp());
+                preparedStatement.setInt(3, cursor.getId());
+                preparedStatement.setInt(4, limit);
+            }
+            resultSet = preparedStatement.executeQuery();
+            while (resultSet.next()) {
+                events.add(mapResultSetToEvent(resultSet));
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return events;
+    }
+
     @Override
     public Event findEvent(Integer id) {
         Event event = null;
@@ -429,6 +478,47 @@ public class MySqlEventRepository extends MySqlAbstractRepository implements Eve
         return events;
     }
 
+    @Override
+    public List<Event> findEventsByIds(List<Integer> ids) {
+        List<Event> events = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return events;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement("SELECT * FROM event WHERE id IN " + this.inClause(ids.size()));
+            this.bindIds(preparedStatement, 1, ids);
+            resultSet = preparedStatement.executeQuery();
+
+            Map<Integer, Event> eventsById = new HashMap<>();
+            while (resultSet.next()) {
+                Event event = mapResultSetToEvent(resultSet);
+                eventsById.put(event.getId(), event);
+            }
+            // Callers pass ids in ranked order, keep it
+            for (Integer id : ids) {
+                Event event = eventsById.get(id);
+                if (event != null) {
+                    events.add(event);
+                }
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return events;
+    }
+
     @Override
     public List<Event> findLatestEvents(int limit) {
         List<Event> events = new ArrayList<>();
@@ -495,9 +585,13 @@ public class MySqlEventRepository extends MySqlAbstractRepository implements Eve
         try {
             connection = this.newConnection();
 
+            // Ranks by views in the last 30 daily buckets, today included, so the event's age does not matter
             preparedStatement = connection.prepareStatement(
-                "SELECT * FROM event WHERE created_at >= DATE_SUB(NOW(), INTERVAL 30 DAY) ORDER BY views DESC LIMIT ?");
-            preparedStatement.setInt(1, limit);
+                "SELECT e.* FROM (SELECT event_id, SUM(views) AS window_views FROM event_view_daily WHERE day >= ? " +
+                "GROUP BY event_id ORDER BY window_views DESC, event_id DESC LIMIT ?) w " +
+                "JOIN event e ON e.id = w.event_id ORDER BY w.window_views DESC, w.event_id DESC");
+            preparedStatement.setDate(1, Date.valueOf(LocalDate.now().minusDays(29)));
+            preparedStatement.setInt(2, limit);
             resultSet = preparedStatement.executeQuery();
             while (resultSet.next()) {
                 events.add(mapResultSetToEvent(resultSet));
@@ -597,6 +691,83 @@ public class MySqlEventRepository extends MySqlAbstractRepository implements Eve
         }
     }
 
+    // Applies buffered view counts in chunks of one multi-row UPDATE each, all in a single transaction
+    @Override
+    public boolean addViews(Map<Integer, Long> viewDeltas, LocalDate day) {
+        if (viewDeltas == null || viewDeltas.isEmpty()) {
+            return true;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = this.newConnection();
+            connection.setAutoCommit(false);
+
+            List<Integer> ids = new ArrayList<>(viewDeltas.keySet());
+            Collections.sort(ids);
+            for (int start = 0; start < ids.size(); start += FLUSH_CHUNK) {
+                List<Integer> chunk = ids.subList(start, Math.min(ids.size(), start + FLUSH_CHUNK));
+                preparedStatement = connection.prepareStatement(
+                    "UPDATE event SET views = views + " + this.caseById(chunk.size()) + " WHERE id IN " + this.inClause(chunk.size()));
+                int index = this.bindCase(preparedStatement, 1, chunk, viewDeltas, Long::longValue);
+                this.bindIds(preparedStatement, index, chunk);
+                preparedStatement.executeUpdate();
+                this.closeStatement(preparedStatement);
+                preparedStatement = null;
+
+                // Selecting from event skips ids deleted since the views were counted instead of failing the whole flush
+                preparedStatement = connection.prepareStatement(
+                    "INSERT INTO event_view_daily (event_id, day, views) " +
+                    "SELECT id, ?, " + this.caseById(chunk.size()) + " FROM event WHERE id IN " + this.inClause(chunk.size()) + " " +
+                    "ON DUPLICATE KEY UPDATE event_view_daily.views = event_view_daily.views + VALUES(views)");
+                preparedStatement.setDate(1, Date.valueOf(day));
+                index = this.bindCase(preparedStatement, 2, chunk, viewDeltas, Long::longValue);
+                this.bindIds(preparedStatement, index, chunk);
+                preparedStatement.executeUpdate();
+                this.closeStatement(preparedStatement);
+                preparedStatement = null;
+            }
+
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeConnection(connection);
+        }
+    }
+
+    // Deletes in chunks so rolling off a day never holds a long lock on the bucket table
+    @Override
+    public int deleteViewBucketsBefore(LocalDate day) {
+        int deleted = 0;
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement("DELETE FROM event_view_daily WHERE day < ? LIMIT " + PURGE_CHUNK);
+            preparedStatement.setDate(1, Date.valueOf(day));
+            int rows;
+            do {
+                rows = preparedStatement.executeUpdate();
+                deleted += rows;
+            } while (rows == PURGE_CHUNK);
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeConnection(connection);
+        }
+
+        return deleted;
+    }
+
     @Override
     public void incrementLikes(Integer eventId) {
         Connection connection = null;
@@ -673,6 +844,76 @@ public class MySqlEventRepository extends MySqlAbstractRepository implements Eve
         }
     }
 
+    // Net like/dislike deltas from the reaction buffer; counts never go below zero
+    @Override
+    public boolean applyReactionDeltas(Map<Integer, ReactionCounts> deltas) {
+        if (deltas == null || deltas.isEmpty()) {
+            return true;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = this.newConnection();
+            connection.setAutoCommit(false);
+
+            List<Integer> ids = new ArrayList<>(deltas.keySet());
+            Collections.sort(ids);
+            for (int start = 0; start < ids.size(); start += FLUSH_CHUNK) {
+                List<Integer> chunk = ids.subList(start, Math.min(ids.size(), start + FLUSH_CHUNK));
+
+                preparedStatement = connection.prepareStatement(
+                    "UPDATE event SET like_count = GREATEST(0, like_count + " + this.caseById(chunk.size()) + "), " +
+                    "dislike_count = GREATEST(0, dislike_count + " + this.caseById(chunk.size()) + ") WHERE id IN " + this.inClause(chunk.size()));
+                int index = this.bindCase(preparedStatement, 1, chunk, deltas, ReactionCounts::getLikeCount);
+                index = this.bindCase(preparedStatement, index, chunk, deltas, ReactionCounts::getDislikeCount);
+                this.bindIds(preparedStatement, index, chunk);
+                preparedStatement.executeUpdate();
+                this.closeStatement(preparedStatement);
+                preparedStatement = null;
+            }
+
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeConnection(connection);
+        }
+    }
+
+    // Just the two counters, so loading a row into the reaction buffer also answers whether it exists; null when it does not
+    @Override
+    public ReactionCounts findReactionCounts(Integer id) {
+        ReactionCounts counts = null;
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement("SELECT like_count, dislike_count FROM event WHERE id = ?");
+            preparedStatement.setInt(1, id);
+            resultSet = preparedStatement.executeQuery();
+
+            if (resultSet.next()) {
+                counts = new ReactionCounts(resultSet.getInt("like_count"), resultSet.getInt("dislike_count"));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return counts;
+    }
+
     @Override
     public int eventCount() {
         Connection connection = null;
@@ -692,6 +933,90 @@ public class MySqlEventRepository extends MySqlAbstractRepository implements Eve
             e.printStackTrace();
         } finally {
             this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return count;
+    }
+
+    @Override
+    public int countSearch(String searchTerm) {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+
+        int count = 0;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement("SELECT COUNT(*) FROM event WHERE title LIKE ? OR description LIKE ?");
+            String searchPattern = "%" + searchTerm + "%";
+            preparedStatement.setString(1, searchPattern);
+            preparedStatement.setString(2, searchPattern);
+            resultSet = preparedStatement.executeQuery();
+            if (resultSet.next()) {
+                count = resultSet.getInt(1);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return count;
+    }
+
+    @Override
+    public int countByCategory(Integer categoryId) {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+
+        int count = 0;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement("SELECT COUNT(*) FROM event WHERE category_id = ?");
+            preparedStatement.setInt(1, categoryId);
+            resultSet = preparedStatement.executeQuery();
+            if (resultSet.next()) {
+                count = resultSet.getInt(1);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return count;
+    }
+
+    @Override
+    public int countByTag(Integer tagId) {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+
+        int count = 0;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement("SELECT COUNT(*) FROM event_tag WHERE tag_id = ?");
+            preparedStatement.setInt(1, tagId);
+            resultSet = preparedStatement.executeQuery();
+            if (resultSet.next()) {
+                count = resultSet.getInt(1);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
             this.closeConnection(connection);
         }
 
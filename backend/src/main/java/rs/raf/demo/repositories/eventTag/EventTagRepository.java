@@ -1,11 +1,14 @@
 package rs.raf.demo.repositories.eventTag;
 
 import rs.raf.demo.entities.EventTag;
+import java.util.Collection;
 import java.util.List;
 
 public interface EventTagRepository {
     public void addEventTag(Integer eventId, Integer tagId);
     public void removeEventTag(Integer eventId, Integer tagId);
     public void removeAllTagsForEvent(Integer eventId);
+    public boolean replaceEventTags(Integer eventId, Collection<Integer> tagIds);
     public boolean eventHasTag(Integer eventId, Integer tagId);
+    public List<EventTag> allEventTags();
 }
@@ -4,7 +4,11 @@ import rs.raf.demo.entities.EventTag;
 import rs.raf.demo.repositories.MySqlAbstractRepository;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class MySqlEventTagRepository extends MySqlAbstractRepository implements EventTagRepository {
 
@@ -71,6 +75,66 @@ public class MySqlEventTagRepository extends MySqlAbstractRepository implements
         }
     }
 
+    @Override
+    public boolean replaceEventTags(Integer eventId, Collection<Integer> tagIds) {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+            connection.setAutoCommit(false);
+
+            // Locks the event's links so two concurrent edits cannot both compute a diff from the same state
+            preparedStatement = connection.prepareStatement("SELECT tag_id FROM event_tag WHERE event_id = ? FOR UPDATE");
+            preparedStatement.setInt(1, eventId);
+            resultSet = preparedStatement.executeQuery();
+            Set<Integer> currentTagIds = new HashSet<>();
+            while (resultSet.next()) {
+                currentTagIds.add(resultSet.getInt("tag_id"));
+            }
+            this.closeResultSet(resultSet);
+            resultSet = null;
+            this.closeStatement(preparedStatement);
+            preparedStatement = null;
+
+            Set<Integer> wantedTagIds = new HashSet<>(tagIds);
+            List<Integer> removedTagIds = new ArrayList<>(currentTagIds);
+            removedTagIds.removeAll(wantedTagIds);
+            List<Integer> addedTagIds = new ArrayList<>(wantedTagIds);
+            addedTagIds.removeAll(currentTagIds);
+
+            if (!removedTagIds.isEmpty()) {
+                preparedStatement = connection.prepareStatement(
+                    "DELETE FROM event_tag WHERE event_id = ? AND tag_id IN " + this.inClause(removedTagIds.size()));
+                preparedStatement.setInt(1, eventId);
+                this.bindIds(preparedStatement, 2, removedTagIds);
+                preparedStatement.executeUpdate();
+                this.closeStatement(preparedStatement);
+                preparedStatement = null;
+            }
+
+            if (!addedTagIds.isEmpty()) {
+                preparedStatement = connection.prepareStatement("INSERT INTO event_tag (event_id, tag_id) VALUES (?, ?)");
+                for (Integer tagId : addedTagIds) {
+                    preparedStatement.setInt(1, eventId);
+                    preparedStatement.setInt(2, tagId);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+            }
+
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+    }
+
     @Override
     public boolean eventHasTag(Integer eventId, Integer tagId) {
         boolean hasTag = false;
@@ -99,4 +163,31 @@ public class MySqlEventTagRepository extends MySqlAbstractRepository implements
 
         return hasTag;
     }
+
+    @Override
+    public List<EventTag> allEventTags() {
+        List<EventTag> eventTags = new ArrayList<>();
+
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery("SELECT id, event_id, tag_id FROM event_tag");
+            while (resultSet.next()) {
+                eventTags.add(new EventTag(resultSet.getInt("id"), resultSet.getInt("event_id"), resultSet.getInt("tag_id")));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(statement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return eventTags;
+    }
 }
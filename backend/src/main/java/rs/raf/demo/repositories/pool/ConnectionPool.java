@@ -0,0 +1,301 @@
+package rs.raf.demo.repositories.pool;
+
+import rs.raf.demo.config.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConnectionPool {
+
+    // Connections handed back within this window are not re-validated on the next borrow
+    private static final long VALIDATION_BYPASS_MS = 500;
+
+    private final String url;
+    private final Properties connectionProperties;
+
+    private final int maxPoolSize;
+    private final int minIdle;
+    private final long connectionTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final int validationTimeoutSeconds;
+    private final long leakDetectionThresholdMs;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> activeConnections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder closedCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final Map<String, StatementCounter> statementCounters = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String username, String password) {
+        this.url = url;
+        this.connectionProperties = new Properties();
+        this.connectionProperties.setProperty("user", username);
+        this.connectionProperties.setProperty("password", password);
+        // Statements are cached per pooled connection below, so let the server keep the parsed plans
+        this.connectionProperties.setProperty("useServerPrepStmts", String.valueOf(DatabaseConfig.getBoolean("db.useServerPrepStmts", true)));
+        this.connectionProperties.setProperty("cachePrepStmts", "false");
+        // Lets the driver send JDBC batches of INSERTs as a single multi-row statement
+        this.connectionProperties.setProperty("rewriteBatchedStatements", String.valueOf(DatabaseConfig.getBoolean("db.rewriteBatchedStatements", true)));
+
+        this.maxPoolSize = Math.max(1, DatabaseConfig.getInt("db.pool.maxSize", 10));
+        this.minIdle = Math.min(this.maxPoolSize, Math.max(0, DatabaseConfig.getInt("db.pool.minIdle", 2)));
+        this.connectionTimeoutMs = DatabaseConfig.getLong("db.pool.connectionTimeoutMs", 30000);
+        this.idleTimeoutMs = DatabaseConfig.getLong("db.pool.idleTimeoutMs", 600000);
+        this.maxLifetimeMs = DatabaseConfig.getLong("db.pool.maxLifetimeMs", 1800000);
+        this.validationTimeoutSeconds = DatabaseConfig.getInt("db.pool.validationTimeoutSeconds", 5);
+        this.leakDetectionThresholdMs = DatabaseConfig.getLong("db.pool.leakDetectionThresholdMs", 60000);
+        this.statementCacheSize = DatabaseConfig.getInt("db.statementCache.size", 64);
+        long housekeepingIntervalMs = DatabaseConfig.getLong("db.pool.housekeepingIntervalMs", 30000);
+
+        this.permits = new Semaphore(this.maxPoolSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, housekeepingIntervalMs, housekeepingIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (this.closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        this.waitingThreads.incrementAndGet();
+        try {
+            acquired = this.permits.tryAcquire(this.connectionTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            this.waitingThreads.decrementAndGet();
+        }
+
+        if (!acquired) {
+            this.timeoutCount.increment();
+            throw new SQLTransientConnectionException(
+                    "Timed out after " + this.connectionTimeoutMs + "ms waiting for a database connection (" + this.getStatistics() + ")");
+        }
+
+        try {
+            PooledConnection pooledConnection = this.takeIdleConnection();
+            if (pooledConnection == null) {
+                pooledConnection = this.createConnection();
+            }
+            this.activeConnections.add(pooledConnection);
+            Connection connection = pooledConnection.borrow();
+            this.recordAcquire(System.nanoTime() - start);
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    void release(PooledConnection pooledConnection) {
+        this.activeConnections.remove(pooledConnection);
+        try {
+            if (!this.closed && !pooledConnection.isBroken() && !this.isExpired(pooledConnection) && pooledConnection.reset()) {
+                pooledConnection.markReturned();
+                this.idleConnections.offerFirst(pooledConnection);
+            } else {
+                this.closeConnection(pooledConnection);
+            }
+        } finally {
+            this.permits.release();
+        }
+    }
+
+    public void close() {
+        this.closed = true;
+        this.housekeeper.shutdownNow();
+
+        PooledConnection pooledConnection;
+        while ((pooledConnection = this.idleConnections.pollFirst()) != null) {
+            this.closeConnection(pooledConnection);
+        }
+    }
+
+    public PoolStatistics getStatistics() {
+        long acquired = this.acquireCount.sum();
+        double averageAcquireMillis = acquired == 0 ? 0 : (this.acquireNanos.sum() / (double) acquired) / 1_000_000.0;
+
+        return new PoolStatistics(
+                this.maxPoolSize,
+                this.minIdle,
+                this.totalConnections.get(),
+                this.activeConnections.size(),
+                this.idleConnections.size(),
+                this.waitingThreads.get(),
+                acquired,
+                averageAcquireMillis,
+                this.maxAcquireNanos.get() / 1_000_000.0,
+                this.timeoutCount.sum(),
+                this.createdCount.sum(),
+                this.closedCount.sum(),
+                this.leakCount.sum()
+        );
+    }
+
+    public List<StatementStatistics> getStatementStatistics() {
+        List<StatementStatistics> statistics = new ArrayList<>();
+        for (Map.Entry<String, StatementCounter> entry : this.statementCounters.entrySet()) {
+            statistics.add(new StatementStatistics(entry.getKey(), entry.getValue().hits.sum(), entry.getValue().misses.sum()));
+        }
+        statistics.sort(Comparator.comparingLong(StatementStatistics::getExecutions).reversed());
+        return statistics;
+    }
+
+    void recordStatement(String sql, boolean hit) {
+        StatementCounter counter = this.statementCounters.computeIfAbsent(sql, key -> new StatementCounter());
+        if (hit) {
+            counter.hits.increment();
+        } else {
+            counter.misses.increment();
+        }
+    }
+
+    private PooledConnection takeIdleConnection() {
+        PooledConnection pooledConnection;
+        while ((pooledConnection = this.idleConnections.pollFirst()) != null) {
+            if (this.isExpired(pooledConnection) || !this.isAlive(pooledConnection)) {
+                this.closeConnection(pooledConnection);
+                continue;
+            }
+            return pooledConnection;
+        }
+        return null;
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(this.url, this.connectionProperties);
+        this.totalConnections.incrementAndGet();
+        this.createdCount.increment();
+        return new PooledConnection(this, connection, this.statementCacheSize);
+    }
+
+    private void closeConnection(PooledConnection pooledConnection) {
+        pooledConnection.closePhysical();
+        this.totalConnections.decrementAndGet();
+        this.closedCount.increment();
+    }
+
+    private boolean isExpired(PooledConnection pooledConnection) {
+        return this.maxLifetimeMs > 0 && System.currentTimeMillis() - pooledConnection.getCreatedAt() > this.maxLifetimeMs;
+    }
+
+    private boolean isAlive(PooledConnection pooledConnection) {
+        if (System.currentTimeMillis() - pooledConnection.getLastReturnedAt() < VALIDATION_BYPASS_MS) {
+            return true;
+        }
+        return pooledConnection.isValid(this.validationTimeoutSeconds);
+    }
+
+    private void recordAcquire(long nanos) {
+        this.acquireCount.increment();
+        this.acquireNanos.add(nanos);
+        this.maxAcquireNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void housekeep() {
+        try {
+            this.evictIdleConnections();
+            this.detectLeaks();
+            this.fillMinimumIdle();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> iterator = this.idleConnections.descendingIterator();
+        while (iterator.hasNext()) {
+            PooledConnection pooledConnection = iterator.next();
+            boolean idleTooLong = this.idleTimeoutMs > 0
+                    && now - pooledConnection.getLastReturnedAt() > this.idleTimeoutMs
+                    && this.totalConnections.get() > this.minIdle;
+            if ((idleTooLong || this.isExpired(pooledConnection)) && this.idleConnections.remove(pooledConnection)) {
+                this.closeConnection(pooledConnection);
+            }
+        }
+    }
+
+    private void detectLeaks() {
+        if (this.leakDetectionThresholdMs <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooledConnection : this.activeConnections) {
+            if (!pooledConnection.isLeakReported() && now - pooledConnection.getBorrowedAt() > this.leakDetectionThresholdMs) {
+                pooledConnection.setLeakReported(true);
+                this.leakCount.increment();
+                Thread borrower = pooledConnection.getBorrower();
+                System.err.println("Possible connection leak: connection held for more than " + this.leakDetectionThresholdMs
+                        + "ms by thread " + (borrower == null ? "unknown" : borrower.getName()));
+                // Taken only once a leak is suspected, so borrowing never pays for a stack walk
+                if (borrower != null) {
+                    Throwable borrowerTrace = new Throwable("Borrowing thread is currently here");
+                    borrowerTrace.setStackTrace(borrower.getStackTrace());
+                    borrowerTrace.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void fillMinimumIdle() {
+        while (!this.closed && this.totalConnections.get() < this.minIdle && this.permits.tryAcquire()) {
+            try {
+                PooledConnection pooledConnection = this.createConnection();
+                pooledConnection.markReturned();
+                this.idleConnections.offerLast(pooledConnection);
+            } catch (SQLException e) {
+                System.err.println("Could not open idle database connection: " + e.getMessage());
+                return;
+            } finally {
+                this.permits.release();
+            }
+        }
+    }
+
+    private static final class StatementCounter {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+}
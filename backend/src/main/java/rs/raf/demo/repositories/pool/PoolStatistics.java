@@ -0,0 +1,92 @@
+package rs.raf.demo.repositories.pool;
+
+public class PoolStatistics {
+    private final int maxPoolSize;
+    private final int minIdle;
+    private final int totalConnections;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int waitingThreads;
+    private final long acquireCount;
+    private final double averageAcquireMillis;
+    private final double maxAcquireMillis;
+    private final long acquireTimeouts;
+    private final long connectionsCreated;
+    private final long connectionsClosed;
+    private final long leaksDetected;
+
+    public PoolStatistics(int maxPoolSize, int minIdle, int totalConnections, int activeConnections, int idleConnections,
+                          int waitingThreads, long acquireCount, double averageAcquireMillis, double maxAcquireMillis,
+                          long acquireTimeouts, long connectionsCreated, long connectionsClosed, long leaksDetected) {
+        this.maxPoolSize = maxPoolSize;
+        this.minIdle = minIdle;
+        this.totalConnections = totalConnections;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.waitingThreads = waitingThreads;
+        this.acquireCount = acquireCount;
+        this.averageAcquireMillis = averageAcquireMillis;
+        this.maxAcquireMillis = maxAcquireMillis;
+        this.acquireTimeouts = acquireTimeouts;
+        this.connectionsCreated = connectionsCreated;
+        this.connectionsClosed = connectionsClosed;
+        this.leaksDetected = leaksDetected;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getWaitingThreads() {
+        return waitingThreads;
+    }
+
+    public long getAcquireCount() {
+        return acquireCount;
+    }
+
+    public double getAverageAcquireMillis() {
+        return averageAcquireMillis;
+    }
+
+    public double getMaxAcquireMillis() {
+        return maxAcquireMillis;
+    }
+
+    public long getAcquireTimeouts() {
+        return acquireTimeouts;
+    }
+
+    public long getConnectionsCreated() {
+        return connectionsCreated;
+    }
+
+    public long getConnectionsClosed() {
+        return connectionsClosed;
+    }
+
+    public long getLeaksDetected() {
+        return leaksDetected;
+    }
+
+    @Override
+    public String toString() {
+        return "total=" + totalConnections + ", active=" + activeConnections + ", idle=" + idleConnections + ", waiting=" + waitingThreads;
+    }
+}
@@ -0,0 +1,306 @@
+package rs.raf.demo.repositories.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Callers only ever see a per-borrow proxy, so close() hands the connection back to the pool
+final class PooledConnection {
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final long createdAt;
+    private final Map<String, CachedStatement> statementCache;
+
+    private volatile long lastReturnedAt;
+    private volatile long borrowedAt;
+    private volatile Thread borrower;
+    private volatile boolean leakReported;
+    private volatile boolean broken;
+
+    PooledConnection(ConnectionPool pool, Connection connection, int statementCacheSize) {
+        this.pool = pool;
+        this.connection = connection;
+        this.createdAt = System.currentTimeMillis();
+        this.lastReturnedAt = this.createdAt;
+        this.statementCache = statementCacheSize <= 0 ? null : new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (this.size() <= statementCacheSize) {
+                    return false;
+                }
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    Connection borrow() {
+        this.borrowedAt = System.currentTimeMillis();
+        this.borrower = Thread.currentThread();
+        this.leakReported = false;
+
+        return (Connection) Proxy.newProxyInstance(
+                PooledConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandle());
+    }
+
+    void markReturned() {
+        this.lastReturnedAt = System.currentTimeMillis();
+        this.borrower = null;
+    }
+
+    boolean reset() {
+        try {
+            if (!this.connection.getAutoCommit()) {
+                this.connection.rollback();
+                this.connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    boolean isValid(int timeoutSeconds) {
+        try {
+            return this.connection.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void closePhysical() {
+        if (this.statementCache != null) {
+            for (CachedStatement cachedStatement : this.statementCache.values()) {
+                cachedStatement.evict();
+            }
+            this.statementCache.clear();
+        }
+        try {
+            this.connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getLastReturnedAt() {
+        return lastReturnedAt;
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    Thread getBorrower() {
+        return borrower;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void setLeakReported(boolean leakReported) {
+        this.leakReported = leakReported;
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    void inspectFailure(SQLException e) {
+        // SQLSTATE class 08 means the connection itself is gone; never hand it out again
+        String sqlState = e.getSQLState();
+        if (sqlState != null && sqlState.startsWith("08")) {
+            this.broken = true;
+        }
+    }
+
+    private Object prepareCached(Object connectionProxy, Method method, Object[] args) throws Throwable {
+        String sql = (String) args[0];
+        String key = args.length == 1 ? sql : sql + '\u0000' + (args[1] instanceof String[] ? Arrays.toString((String[]) args[1]) : args[1]);
+
+        CachedStatement cachedStatement = this.statementCache.get(key);
+        if (cachedStatement != null && cachedStatement.evicted && !cachedStatement.inUse) {
+            this.statementCache.remove(key);
+            cachedStatement = null;
+        }
+        if (cachedStatement != null && !cachedStatement.inUse) {
+            this.pool.recordStatement(sql, true);
+            return cachedStatement.checkout(connectionProxy);
+        }
+
+        PreparedStatement statement = (PreparedStatement) this.invokeOnConnection(method, args);
+        this.pool.recordStatement(sql, false);
+
+        if (cachedStatement != null) {
+            // Same SQL is already open on this connection (nested use), hand out a plain statement
+            return statement;
+        }
+
+        cachedStatement = new CachedStatement(statement);
+        this.statementCache.put(key, cachedStatement);
+        return cachedStatement.checkout(connectionProxy);
+    }
+
+    private Object invokeOnConnection(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(this.connection, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                this.inspectFailure((SQLException) cause);
+            }
+            throw cause;
+        }
+    }
+
+    private static boolean isCacheablePrepare(Method method, Object[] args) {
+        if (!"prepareStatement".equals(method.getName()) || args == null || !(args[0] instanceof String)) {
+            return false;
+        }
+        return args.length == 1 || (args.length == 2 && (args[1] instanceof String[] || args[1] instanceof Integer));
+    }
+
+    private final class CachedStatement {
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+
+        private CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        private PreparedStatement checkout(Object connectionProxy) {
+            this.inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PooledConnection.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new StatementHandle(this, connectionProxy));
+        }
+
+        private void checkin() {
+            this.inUse = false;
+            if (this.evicted) {
+                this.closeQuietly();
+                return;
+            }
+            try {
+                this.statement.clearParameters();
+            } catch (SQLException e) {
+                this.evicted = true;
+                this.closeQuietly();
+            }
+        }
+
+        private void evict() {
+            this.evicted = true;
+            if (!this.inUse) {
+                this.closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                this.statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    private final class StatementHandle implements InvocationHandler {
+        private final CachedStatement cachedStatement;
+        private final Object connectionProxy;
+        private boolean closed;
+
+        private StatementHandle(CachedStatement cachedStatement, Object connectionProxy) {
+            this.cachedStatement = cachedStatement;
+            this.connectionProxy = connectionProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!this.closed) {
+                        this.closed = true;
+                        this.cachedStatement.checkin();
+                    }
+                    return null;
+                case "isClosed":
+                    return this.closed || this.cachedStatement.statement.isClosed();
+                case "getConnection":
+                    return this.connectionProxy;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + this.cachedStatement.statement + "]";
+                default:
+                    break;
+            }
+
+            if (this.closed) {
+                throw new SQLException("Statement is closed");
+            }
+
+            try {
+                return method.invoke(this.cachedStatement.statement, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    inspectFailure((SQLException) cause);
+                }
+                throw cause;
+            }
+        }
+    }
+
+    private class ConnectionHandle implements InvocationHandler {
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!this.closed) {
+                        this.closed = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return this.closed || connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + connection + (this.closed ? ", closed]" : "]");
+                default:
+                    break;
+            }
+
+            if (this.closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            if (statementCache != null && isCacheablePrepare(method, args)) {
+                return prepareCached(proxy, method, args);
+            }
+            return invokeOnConnection(method, args);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package rs.raf.demo.repositories.pool;
+
+public class StatementStatistics {
+    private final String sql;
+    private final long hits;
+    private final long misses;
+
+    public StatementStatistics(String sql, long hits, long misses) {
+        this.sql = sql;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getExecutions() {
+        return hits + misses;
+    }
+
+    public double getHitRatio() {
+        long executions = this.getExecutions();
+        return executions == 0 ? 0 : hits / (double) executions;
+    }
+}
@@ -1,12 +1,16 @@
 package rs.raf.demo.repositories.rsvp;
 
 import rs.raf.demo.entities.RSVP;
+import rs.raf.demo.entities.RSVPAdmission;
+import rs.raf.demo.pagination.Cursor;
 import rs.raf.demo.repositories.MySqlAbstractRepository;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class MySqlRSVPRepository extends MySqlAbstractRepository implements RSVPRepository {
 
@@ -15,8 +19,10 @@ public class MySqlRSVPRepository extends MySqlAbstractRepository implements RSVP
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         ResultSet resultSet = null;
+        PreparedStatement counterStatement = null;
         try {
             connection = this.newConnection();
+            connection.setAutoCommit(false);
 
             String[] generatedColumns = {"id"};
 
@@ -34,10 +40,19 @@ public class MySqlRSVPRepository extends MySqlAbstractRepository implements RSVP
                 rsvp.setId(resultSet.getInt(1));
             }
 
+            // A missing counter row is created with a full count the first time it is needed
+            counterStatement = connection.prepareStatement(
+                "UPDATE event_rsvp_counter SET taken = taken + 1 WHERE event_id = ?");
+            counterStatement.setInt(1, rsvp.getEventId());
+            counterStatement.executeUpdate();
+
+            connection.commit();
+
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
             this.closeStatement(preparedStatement);
+            this.closeStatement(counterStatement);
             this.closeResultSet(resultSet);
             this.closeConnection(connection);
         }
@@ -45,6 +60,309 @@ public class MySqlRSVPRepository extends MySqlAbstractRepository implements RSVP
         return rsvp;
     }
 
+    // Claims a seat on the event's counter row and inserts the RSVP in one short transaction. The row lock
+    // taken by the conditional UPDATE serialises concurrent signups, so capacity can never be oversold.
+    @Override
+    public RSVPAdmission admitRSVP(RSVP rsvp) {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+            connection.setAutoCommit(false);
+
+            for (int attempt = 0; attempt < 2; attempt++) {
+                int taken = this.claimSeat(connection, rsvp.getEventId());
+                if (taken >= 0) {
+                    try {
+                        this.insertRSVP(connection, rsvp);
+                    } catch (SQLIntegrityConstraintViolationException e) {
+                        // Releases the seat claimed above
+                        connection.rollback();
+                        return new RSVPAdmission(RSVPAdmission.Status.ALREADY_REGISTERED, null, taken - 1, null);
+                    }
+                    connection.commit();
+                    return new RSVPAdmission(RSVPAdmission.Status.ADMITTED, rsvp, taken, null);
+                }
+
+                // No seat claimed: the event is missing, full, or has no counter row yet. Someone already registered
+                // is told so rather than that the event is full
+                preparedStatement = connection.prepareStatement(
+                    "SELECT e.max_capacity, c.taken, " +
+                    "EXISTS (SELECT 1 FROM rsvp r WHERE r.event_id = e.id AND r.user_identifier = ?) AS registered " +
+                    "FROM event e LEFT JOIN event_rsvp_counter c ON c.event_id = e.id WHERE e.id = ?");
+                preparedStatement.setString(1, rsvp.getUserIdentifier());
+                preparedStatement.setInt(2, rsvp.getEventId());
+                resultSet = preparedStatement.executeQuery();
+                if (!resultSet.next()) {
+                    return new RSVPAdmission(RSVPAdmission.Status.EVENT_NOT_FOUND, null, 0, null);
+                }
+                int maxCapacity = resultSet.getInt("max_capacity");
+                Integer capacity = resultSet.wasNull() ? null : maxCapacity;
+                int counterTaken = resultSet.getInt("taken");
+                boolean hasCounter = !resultSet.wasNull();
+                if (resultSet.getBoolean("registered")) {
+                    return new RSVPAdmission(RSVPAdmission.Status.ALREADY_REGISTERED, null, counterTaken, capacity);
+                }
+                this.closeResultSet(resultSet);
+                resultSet = null;
+                this.closeStatement(preparedStatement);
+                preparedStatement = null;
+
+                if (hasCounter) {
+                    return new RSVPAdmission(RSVPAdmission.Status.FULL, null, counterTaken, capacity);
+                }
+
+                // Events created after the schema seed get their counter on the first signup
+                preparedStatement = connection.prepareStatement(
+                    "INSERT IGNORE INTO event_rsvp_counter (event_id, taken) SELECT ?, COUNT(*) FROM rsvp WHERE event_id = ?");
+                preparedStatement.setInt(1, rsvp.getEventId());
+                preparedStatement.setInt(2, rsvp.getEventId());
+                preparedStatement.executeUpdate();
+                this.closeStatement(preparedStatement);
+                preparedStatement = null;
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return new RSVPAdmission(RSVPAdmission.Status.FAILED, null, 0, null);
+    }
+
+    // Writes RSVPs whose seats were already granted in memory: one batched INSERT plus one counter UPDATE.
+    // The counter update is still capacity-checked, so a batch that would oversell is refused as a whole.
+    @Override
+    public boolean addAdmittedRSVPs(Integer eventId, List<RSVP> rsvps) {
+        if (rsvps.isEmpty()) {
+            return true;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+            connection.setAutoCommit(false);
+
+            preparedStatement = connection.prepareStatement(
+                "UPDATE event_rsvp_counter c JOIN event e ON e.id = c.event_id SET c.taken = c.taken + ? " +
+                "WHERE c.event_id = ? AND (e.max_capacity IS NULL OR e.max_capacity <= 0 OR c.taken + ? <= e.max_capacity)");
+            preparedStatement.setInt(1, rsvps.size());
+            preparedStatement.setInt(2, eventId);
+            preparedStatement.setInt(3, rsvps.size());
+            if (preparedStatement.executeUpdate() == 0) {
+                return false;
+            }
+            this.closeStatement(preparedStatement);
+
+            preparedStatement = connection.prepareStatement(
+                "INSERT INTO rsvp (user_identifier, event_id, registration_date) VALUES(?, ?, ?)",
+                new String[]{"id"}
+            );
+            for (RSVP rsvp : rsvps) {
+                preparedStatement.setString(1, rsvp.getUserIdentifier());
+                preparedStatement.setInt(2, eventId);
+                preparedStatement.setTimestamp(3, Timestamp.valueOf(rsvp.getRegistrationDate()));
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            resultSet = preparedStatement.getGeneratedKeys();
+            for (RSVP rsvp : rsvps) {
+                if (resultSet.next()) {
+                    rsvp.setId(resultSet.getInt(1));
+                }
+            }
+
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+    }
+
+    // Seats taken according to the counter row, creating the row if needed; -1 when the event does not exist
+    @Override
+    public int findSeatsTaken(Integer eventId) {
+        int taken = -1;
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement(
+                "INSERT IGNORE INTO event_rsvp_counter (event_id, taken) " +
+                "SELECT e.id, (SELECT COUNT(*) FROM rsvp r WHERE r.event_id = e.id) FROM event e WHERE e.id = ?");
+            preparedStatement.setInt(1, eventId);
+            preparedStatement.executeUpdate();
+            this.closeStatement(preparedStatement);
+
+            preparedStatement = connection.prepareStatement("SELECT taken FROM event_rsvp_counter WHERE event_id = ?");
+            preparedStatement.setInt(1, eventId);
+            resultSet = preparedStatement.executeQuery();
+            if (resultSet.next()) {
+                taken = resultSet.getInt("taken");
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return taken;
+    }
+
+    // Counter rows only; events without one are left out
+    @Override
+    public Map<Integer, Integer> findSeatsTaken(List<Integer> eventIds) {
+        Map<Integer, Integer> taken = new HashMap<>();
+        if (eventIds.isEmpty()) {
+            return taken;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement(
+                "SELECT event_id, taken FROM event_rsvp_counter WHERE event_id IN " + this.inClause(eventIds.size()));
+            this.bindIds(preparedStatement, 1, eventIds);
+            resultSet = preparedStatement.executeQuery();
+            while (resultSet.next()) {
+                taken.put(resultSet.getInt("event_id"), resultSet.getInt("taken"));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return taken;
+    }
+
+    // Finds counters that no longer match their RSVP rows and recounts them; returns the repaired event ids
+    @Override
+    public List<Integer> reconcileSeatCounters() {
+        List<Integer> driftedEventIds = new ArrayList<>();
+
+        Connection connection = null;
+        Statement statement = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery(
+                "SELECT c.event_id FROM event_rsvp_counter c LEFT JOIN rsvp r ON r.event_id = c.event_id " +
+                "GROUP BY c.event_id, c.taken HAVING c.taken <> COUNT(r.id)");
+            while (resultSet.next()) {
+                driftedEventIds.add(resultSet.getInt("event_id"));
+            }
+
+            if (!driftedEventIds.isEmpty()) {
+                // The UPDATE locks the counter row before counting, so it cannot race an admission on that event
+                preparedStatement = connection.prepareStatement(
+                    "UPDATE event_rsvp_counter c SET c.taken = (SELECT COUNT(*) FROM rsvp r WHERE r.event_id = c.event_id) " +
+                    "WHERE c.event_id = ?");
+                for (Integer eventId : driftedEventIds) {
+                    preparedStatement.setInt(1, eventId);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(statement);
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return driftedEventIds;
+    }
+
+    // Returns the new number of taken seats, or -1 when no seat was free (or there is no counter row)
+    private int claimSeat(Connection connection, Integer eventId) throws SQLException {
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            // LAST_INSERT_ID(expr) hands the incremented value back with the update count, saving a SELECT
+            preparedStatement = connection.prepareStatement(
+                "UPDATE event_rsvp_counter c JOIN event e ON e.id = c.event_id " +
+                "SET c.taken = LAST_INSERT_ID(c.taken + 1) " +
+                "WHERE c.event_id = ? AND (e.max_capacity IS NULL OR e.max_capacity <= 0 OR c.taken < e.max_capacity) " +
+                // A freed seat belongs to the waitlist, not to whoever asks before the promoter gets to it
+                "AND NOT EXISTS (SELECT 1 FROM rsvp_waitlist w WHERE w.event_id = c.event_id)",
+                Statement.RETURN_GENERATED_KEYS);
+            preparedStatement.setInt(1, eventId);
+            if (preparedStatement.executeUpdate() == 0) {
+                return -1;
+            }
+            resultSet = preparedStatement.getGeneratedKeys();
+            if (resultSet.next()) {
+                return resultSet.getInt(1);
+            }
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+        }
+
+        // The row is locked by this transaction, so reading it back is exact
+        try {
+            preparedStatement = connection.prepareStatement("SELECT taken FROM event_rsvp_counter WHERE event_id = ?");
+            preparedStatement.setInt(1, eventId);
+            resultSet = preparedStatement.executeQuery();
+            return resultSet.next() ? resultSet.getInt(1) : -1;
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+        }
+    }
+
+    private void insertRSVP(Connection connection, RSVP rsvp) throws SQLException {
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            preparedStatement = connection.prepareStatement(
+                "INSERT INTO rsvp (user_identifier, event_id, registration_date) VALUES(?, ?, ?)",
+                new String[]{"id"}
+            );
+            preparedStatement.setString(1, rsvp.getUserIdentifier());
+            preparedStatement.setInt(2, rsvp.getEventId());
+            preparedStatement.setTimestamp(3, Timestamp.valueOf(rsvp.getRegistrationDate()));
+            preparedStatement.executeUpdate();
+            resultSet = preparedStatement.getGeneratedKeys();
+
+            if (resultSet.next()) {
+                rsvp.setId(resultSet.getInt(1));
+            }
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+        }
+    }
+
     @Override
     public List<RSVP> allRSVPs() {
         List<RSVP> rsvps = new ArrayList<>();
@@ -196,9 +514,20 @@ public class MySqlRSVPRepository extends MySqlAbstractRepository implements RSVP
         try {
             connection = this.newConnection();
 
+            connection.setAutoCommit(false);
+
+            // The seat goes back in the same transaction so the counter never drifts from the rows
+            preparedStatement = connection.prepareStatement(
+                "UPDATE event_rsvp_counter c JOIN rsvp r ON r.event_id = c.event_id " +
+                "SET c.taken = GREATEST(0, c.taken - 1) WHERE r.id = ?");
+            preparedStatement.setInt(1, id);
+            preparedStatement.executeUpdate();
+            this.closeStatement(preparedStatement);
+
             preparedStatement = connection.prepareStatement("DELETE FROM rsvp WHERE id = ?");
             preparedStatement.setInt(1, id);
             preparedStatement.executeUpdate();
+            connection.commit();
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -215,9 +544,17 @@ public class MySqlRSVPRepository extends MySqlAbstractRepository implements RSVP
         try {
             connection = this.newConnection();
 
+            connection.setAutoCommit(false);
+
+            preparedStatement = connection.prepareStatement("UPDATE event_rsvp_counter SET taken = 0 WHERE event_id = ?");
+            preparedStatement.setInt(1, eventId);
+            preparedStatement.executeUpdate();
+            this.closeStatement(preparedStatement);
+
             preparedStatement = connection.prepareStatement("DELETE FROM rsvp WHERE event_id = ?");
             preparedStatement.setInt(1, eventId);
             preparedStatement.executeUpdate();
+            connection.commit();
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -315,23 +652,80 @@ public class MySqlRSVPRepository extends MySqlAbstractRepository implements RSVP
     }
 
     @Override
-    public void deleteRSVPByUserAndEvent(String userIdentifier, Integer eventId) {
+    public List<RSVP> findRSVPsByEventIdAfter(Integer eventId, Cursor cursor, int limit) {
+        List<RSVP> rsvps = new ArrayList<>();
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            if (cursor == null) {
+                preparedStatement = connection.prepareStatement(
+                    "SELECT * FROM rsvp WHERE event_id = ? ORDER BY registration_date DESC, id DESC LIMIT ?"
+                );
+                preparedStatement.setInt(1, eventId);
+                preparedStatement.setInt(2, limit);
+            } else {
+                preparedStatement = connection.prepareStatement(
+                    "SELECT * FROM rsvp WHERE event_id = ? AND (registration_date < ? OR (registration_date = ? AND id < ?)) ORDER BY registration_date DESC, id DESC LIMIT ?"
+                );
+                preparedStatement.setInt(1, eventId);
+                preparedStatement.setTimestamp(2, cursor.getSqlTimestamp());
+                preparedStatement.setTimestamp(3, cursor.getSqlTimestamp());
+                preparedStatement.setInt(4, cursor.getId());
+                preparedStatement.setInt(5, limit);
+            }
+            resultSet = preparedStatement.executeQuery();
+            while (resultSet.next()) {
+                rsvps.add(mapResultSetToRSVP(resultSet));
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return rsvps;
+    }
+
+    @Override
+    public boolean deleteRSVPByUserAndEvent(String userIdentifier, Integer eventId) {
+        boolean deleted = false;
+
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         try {
             connection = this.newConnection();
 
+            connection.setAutoCommit(false);
+
             preparedStatement = connection.prepareStatement("DELETE FROM rsvp WHERE user_identifier = ? AND event_id = ?");
             preparedStatement.setString(1, userIdentifier);
             preparedStatement.setInt(2, eventId);
-            preparedStatement.executeUpdate();
+            if (preparedStatement.executeUpdate() > 0) {
+                this.closeStatement(preparedStatement);
+                preparedStatement = connection.prepareStatement(
+                    "UPDATE event_rsvp_counter SET taken = GREATEST(0, taken - 1) WHERE event_id = ?");
+                preparedStatement.setInt(1, eventId);
+                preparedStatement.executeUpdate();
+                deleted = true;
+            }
+            connection.commit();
 
         } catch (SQLException e) {
             e.printStackTrace();
+            deleted = false;
         } finally {
             this.closeStatement(preparedStatement);
             this.closeConnection(connection);
         }
+
+        return deleted;
     }
 
     @Override
@@ -1,11 +1,19 @@
 package rs.raf.demo.repositories.rsvp;
 
 import rs.raf.demo.entities.RSVP;
+import rs.raf.demo.entities.RSVPAdmission;
+import rs.raf.demo.pagination.Cursor;
 
 import java.util.List;
+import java.util.Map;
 
 public interface RSVPRepository {
     public RSVP addRSVP(RSVP rsvp);
+    public RSVPAdmission admitRSVP(RSVP rsvp);
+    public boolean addAdmittedRSVPs(Integer eventId, List<RSVP> rsvps);
+    public int findSeatsTaken(Integer eventId);
+    public Map<Integer, Integer> findSeatsTaken(List<Integer> eventIds);
+    public List<Integer> reconcileSeatCounters();
     public List<RSVP> allRSVPs();
     public RSVP findRSVP(Integer id);
     public List<RSVP> findRSVPsByEventId(Integer eventId);
@@ -13,10 +21,11 @@ public interface RSVPRepository {
     boolean existsByEventAndUser(Integer eventId, String userIdentifier);
 
     public List<RSVP> findRSVPsByEventIdPaginated(Integer eventId, int offset, int limit);
+    public List<RSVP> findRSVPsByEventIdAfter(Integer eventId, Cursor cursor, int limit);
     public List<RSVP> findRSVPsByUserIdentifier(String userIdentifier);
     public RSVP findRSVPByEventAndUser(Integer eventId, String userIdentifier);
     public void deleteRSVP(Integer id);
-    public void deleteRSVPByUserAndEvent(String userIdentifier, Integer eventId);
+    public boolean deleteRSVPByUserAndEvent(String userIdentifier, Integer eventId);
     public void deleteRSVPsByEventId(Integer eventId);
     public boolean existsById(Integer id);
     public boolean isUserRegistered(String userIdentifier, Integer eventId);
@@ -0,0 +1,161 @@
+package rs.raf.demo.repositories.tag;
+
+import rs.raf.demo.cache.ReferenceCache;
+import rs.raf.demo.cache.ReferenceCacheStatistics;
+import rs.raf.demo.entities.Tag;
+import rs.raf.demo.repositories.UnitOfWork;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Tags are loaded once and served from memory; every write refreshes the touched row from MySQL
+public class CachingTagRepository implements TagRepository {
+
+    @Inject
+    private MySqlTagRepository delegate;
+
+    private final ReferenceCache<Tag> cache = new ReferenceCache<>("tags", Integer.MAX_VALUE,
+            Tag::getId, Tag::getName,
+            tag -> new Tag(tag.getId(), tag.getName()),
+            tag -> 16 + 16 + ReferenceCache.stringBytes(tag.getName()));
+
+    @PostConstruct
+    public void start() {
+        this.cache.replaceAll(this.delegate.allTags());
+    }
+
+    @Override
+    public Tag addTag(Tag tag) {
+        Tag savedTag = this.delegate.addTag(tag);
+        if (savedTag.getId() != null) {
+            this.refreshAfterCommit(savedTag.getId());
+        }
+        return savedTag;
+    }
+
+    @Override
+    public List<Tag> allTags() {
+        List<Tag> tags = this.cache.values();
+        if (tags == null) {
+            tags = this.delegate.allTags();
+            this.cache.replaceAll(tags);
+            return tags;
+        }
+        tags.sort(Comparator.comparing(Tag::getName, String.CASE_INSENSITIVE_ORDER));
+        return tags;
+    }
+
+    @Override
+    public Tag findTag(Integer id) {
+        Tag tag = this.cache.get(id);
+        if (tag != null) {
+            return tag;
+        }
+        long generation = this.cache.generation();
+        tag = this.delegate.findTag(id);
+        this.load(tag, generation);
+        return tag;
+    }
+
+    @Override
+    public Tag findByName(String name) {
+        Tag tag = this.cache.getByName(name);
+        if (tag != null) {
+            return tag;
+        }
+        long generation = this.cache.generation();
+        tag = this.delegate.findByName(name);
+        this.load(tag, generation);
+        return tag;
+    }
+
+    @Override
+    public Tag findTagByName(String name) {
+        return this.findByName(name);
+    }
+
+    @Override
+    public List<Tag> findOrCreateTagsByNames(List<String> names) {
+        List<Tag> tags = new ArrayList<>();
+        List<String> missingNames = new ArrayList<>();
+        for (String name : names) {
+            Tag tag = this.cache.getByName(name);
+            if (tag == null) {
+                missingNames.add(name);
+            }
+            tags.add(tag);
+        }
+        if (missingNames.isEmpty()) {
+            return tags;
+        }
+
+        Map<String, Tag> createdTags = new HashMap<>();
+        for (Tag tag : this.delegate.findOrCreateTagsByNames(missingNames)) {
+            UnitOfWork.afterCommit(() -> this.cache.refresh(tag.getId(), tag));
+            createdTags.put(tag.getName().toLowerCase(), tag);
+        }
+
+        List<Tag> resolvedTags = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            Tag tag = tags.get(i) != null ? tags.get(i) : createdTags.get(names.get(i).toLowerCase());
+            if (tag != null) {
+                resolvedTags.add(tag);
+            }
+        }
+        return resolvedTags;
+    }
+
+    @Override
+    public Tag updateTag(Tag tag) {
+        Tag updatedTag = this.delegate.updateTag(tag);
+        this.refreshAfterCommit(tag.getId());
+        return updatedTag;
+    }
+
+    @Override
+    public List<Tag> findTagsByEventId(Integer eventId) {
+        return this.delegate.findTagsByEventId(eventId);
+    }
+
+    @Override
+    public Map<Integer, List<Tag>> findTagsByEventIds(Collection<Integer> eventIds) {
+        return this.delegate.findTagsByEventIds(eventIds);
+    }
+
+    @Override
+    public void deleteTag(Integer id) {
+        this.delegate.deleteTag(id);
+        this.refreshAfterCommit(id);
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return this.findTag(id) != null;
+    }
+
+    @Override
+    public boolean existsByName(String name) {
+        return this.findByName(name) != null;
+    }
+
+    // Rows read inside a transaction may still be rolled back, so only committed state is cached
+    private void load(Tag tag, long generation) {
+        if (!UnitOfWork.isActive()) {
+            this.cache.load(tag, generation);
+        }
+    }
+
+    private void refreshAfterCommit(Integer id) {
+        UnitOfWork.afterCommit(() -> this.cache.refresh(id, this.delegate.findTag(id)));
+    }
+
+    public ReferenceCacheStatistics getCacheStatistics() {
+        return this.cache.getStatistics();
+    }
+}
@@ -5,7 +5,10 @@ import rs.raf.demo.repositories.MySqlAbstractRepository;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class MySqlTagRepository extends MySqlAbstractRepository implements TagRepository {
 
@@ -133,7 +136,76 @@ public class MySqlTagRepository extends MySqlAbstractRepository implements TagRe
 
     @Override
     public Tag findTagByName(String name) {
-        return null;
+        return this.findByName(name);
+    }
+
+    @Override
+    public List<Tag> findOrCreateTagsByNames(List<String> names) {
+        List<Tag> tags = new ArrayList<>();
+        if (names == null || names.isEmpty()) {
+            return tags;
+        }
+
+        Map<String, Tag> tagsByName = new HashMap<>();
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = this.newConnection();
+
+            this.findTagsByNames(connection, names, tagsByName);
+
+            List<String> missingNames = new ArrayList<>();
+            for (String name : names) {
+                if (!tagsByName.containsKey(name.toLowerCase())) {
+                    missingNames.add(name);
+                }
+            }
+
+            if (!missingNames.isEmpty()) {
+                // IGNORE skips names another request inserted in the meantime, as well as the padding repeats
+                StringBuilder values = new StringBuilder();
+                for (int i = 0; i < this.paddedSize(missingNames.size()); i++) {
+                    values.append(i == 0 ? "(?)" : ", (?)");
+                }
+                preparedStatement = connection.prepareStatement("INSERT IGNORE INTO tag (name) VALUES " + values);
+                this.bindStrings(preparedStatement, 1, missingNames);
+                preparedStatement.executeUpdate();
+
+                this.findTagsByNames(connection, missingNames, tagsByName);
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeConnection(connection);
+        }
+
+        for (String name : names) {
+            Tag tag = tagsByName.get(name.toLowerCase());
+            if (tag != null) {
+                tags.add(tag);
+            }
+        }
+        return tags;
+    }
+
+    private void findTagsByNames(Connection connection, List<String> names, Map<String, Tag> tagsByName) throws SQLException {
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            preparedStatement = connection.prepareStatement("SELECT * FROM tag WHERE name IN " + this.inClause(names.size()));
+            this.bindStrings(preparedStatement, 1, names);
+            resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                Tag tag = new Tag(resultSet.getInt("id"), resultSet.getString("name"));
+                tagsByName.put(tag.getName().toLowerCase(), tag);
+            }
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+        }
     }
 
     @Override
@@ -178,6 +250,45 @@ public class MySqlTagRepository extends MySqlAbstractRepository implements TagRe
         return tags;
     }
 
+    @Override
+    public Map<Integer, List<Tag>> findTagsByEventIds(Collection<Integer> eventIds) {
+        Map<Integer, List<Tag>> tagsByEvent = new HashMap<>();
+        if (eventIds == null || eventIds.isEmpty()) {
+            return tagsByEvent;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            List<Integer> idList = new ArrayList<>(eventIds);
+            preparedStatement = connection.prepareStatement(
+                "SELECT et.event_id, t.id, t.name FROM tag t " +
+                "JOIN event_tag et ON t.id = et.tag_id " +
+                "WHERE et.event_id IN " + this.inClause(idList.size()) + " " +
+                "ORDER BY t.name"
+            );
+            this.bindIds(preparedStatement, 1, idList);
+            resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                tagsByEvent.computeIfAbsent(resultSet.getInt("event_id"), id -> new ArrayList<>())
+                    .add(new Tag(resultSet.getInt("id"), resultSet.getString("name")));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return tagsByEvent;
+    }
+
     @Override
     public void deleteTag(Integer id) {
         Connection connection = null;
@@ -225,6 +336,6 @@ public class MySqlTagRepository extends MySqlAbstractRepository implements TagRe
 
     @Override
     public boolean existsByName(String name) {
-        return false;
+        return this.findByName(name) != null;
     }
 }
@@ -2,7 +2,9 @@ package rs.raf.demo.repositories.tag;
 
 import rs.raf.demo.entities.Tag;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface TagRepository {
     public Tag addTag(Tag tag);
@@ -10,8 +12,10 @@ public interface TagRepository {
     public Tag findTag(Integer id);
     public Tag findByName(String name);
     public Tag findTagByName(String name);  // Added for TagService compatibility
+    public List<Tag> findOrCreateTagsByNames(List<String> names);
     public Tag updateTag(Tag tag);  // Added missing method
     public List<Tag> findTagsByEventId(Integer eventId);
+    public Map<Integer, List<Tag>> findTagsByEventIds(Collection<Integer> eventIds);
     public void deleteTag(Integer id);
     public boolean existsById(Integer id);
     public boolean existsByName(String name);  // Added missing method
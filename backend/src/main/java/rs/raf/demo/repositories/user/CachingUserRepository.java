@@ -0,0 +1,129 @@
+package rs.raf.demo.repositories.user;
+
+import rs.raf.demo.cache.ReferenceCache;
+import rs.raf.demo.cache.ReferenceCacheStatistics;
+import rs.raf.demo.config.DatabaseConfig;
+import rs.raf.demo.entities.User;
+import rs.raf.demo.repositories.UnitOfWork;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Users are cached read-through by id and email up to a fixed size; every write refreshes the touched row
+public class CachingUserRepository implements UserRepository {
+
+    @Inject
+    private MySqlUserRepository delegate;
+
+    private final ReferenceCache<User> cache = new ReferenceCache<>("users",
+            DatabaseConfig.getInt("cache.users.maxSize", 10000),
+            User::getId, User::getEmail,
+            user -> new User(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                    user.getUserType(), user.getStatus(), user.getHashedPassword()),
+            user -> 16 + 16 + 6 * 4 + ReferenceCache.stringBytes(user.getEmail())
+                    + ReferenceCache.stringBytes(user.getFirstName()) + ReferenceCache.stringBytes(user.getLastName())
+                    + ReferenceCache.stringBytes(user.getUserType()) + ReferenceCache.stringBytes(user.getStatus())
+                    + ReferenceCache.stringBytes(user.getHashedPassword()));
+
+    @Override
+    public User addUser(User user) {
+        User savedUser = this.delegate.addUser(user);
+        if (savedUser.getId() != null) {
+            this.refreshAfterCommit(savedUser.getId());
+        }
+        return savedUser;
+    }
+
+    @Override
+    public List<User> allUsers() {
+        return this.delegate.allUsers();
+    }
+
+    @Override
+    public User findUser(Integer id) {
+        User user = this.cache.get(id);
+        if (user != null) {
+            return user;
+        }
+        long generation = this.cache.generation();
+        user = this.delegate.findUser(id);
+        this.load(user, generation);
+        return user;
+    }
+
+    @Override
+    public List<User> findUsersByIds(Collection<Integer> ids) {
+        List<Integer> missing = new ArrayList<>();
+        List<User> users = this.cache.getAll(ids, missing);
+        if (!missing.isEmpty()) {
+            long generation = this.cache.generation();
+            for (User user : this.delegate.findUsersByIds(missing)) {
+                this.load(user, generation);
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public User findUserByEmail(String email) {
+        User user = this.cache.getByName(email);
+        if (user != null) {
+            return user;
+        }
+        long generation = this.cache.generation();
+        user = this.delegate.findUserByEmail(email);
+        this.load(user, generation);
+        return user;
+    }
+
+    @Override
+    public User updateUser(User user) {
+        User updatedUser = this.delegate.updateUser(user);
+        this.refreshAfterCommit(user.getId());
+        return updatedUser;
+    }
+
+    @Override
+    public void deleteUser(Integer id) {
+        this.delegate.deleteUser(id);
+        this.refreshAfterCommit(id);
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return this.findUser(id) != null;
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return this.findUserByEmail(email) != null;
+    }
+
+    @Override
+    public List<User> findActiveUsers() {
+        return this.delegate.findActiveUsers();
+    }
+
+    @Override
+    public List<User> findUsersByType(String userType) {
+        return this.delegate.findUsersByType(userType);
+    }
+
+    // Rows read inside a transaction may still be rolled back, so only committed state is cached
+    private void load(User user, long generation) {
+        if (!UnitOfWork.isActive()) {
+            this.cache.load(user, generation);
+        }
+    }
+
+    private void refreshAfterCommit(Integer id) {
+        UnitOfWork.afterCommit(() -> this.cache.refresh(id, this.delegate.findUser(id)));
+    }
+
+    public ReferenceCacheStatistics getCacheStatistics() {
+        return this.cache.getStatistics();
+    }
+}
@@ -3,6 +3,7 @@ package rs.raf.demo.repositories.user;
 import org.apache.commons.codec.digest.DigestUtils;
 import rs.raf.demo.entities.User;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -30,6 +31,11 @@ public class InMemoryUserRepository implements UserRepository {
         return null;
     }
 
+    @Override
+    public List<User> findUsersByIds(Collection<Integer> ids) {
+        return List.of();
+    }
+
     @Override
     public User findUserByEmail(String email) {
         return null;
@@ -5,6 +5,7 @@ import rs.raf.demo.repositories.MySqlAbstractRepository;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class MySqlUserRepository extends MySqlAbstractRepository implements UserRepository {
@@ -103,6 +104,39 @@ public class MySqlUserRepository extends MySqlAbstractRepository implements User
         return user;
     }
 
+    @Override
+    public List<User> findUsersByIds(Collection<Integer> ids) {
+        List<User> users = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return users;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            List<Integer> idList = new ArrayList<>(ids);
+            preparedStatement = connection.prepareStatement("SELECT * FROM user WHERE id IN " + this.inClause(idList.size()));
+            this.bindIds(preparedStatement, 1, idList);
+            resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                users.add(mapResultSetToUser(resultSet));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return users;
+    }
+
     @Override
     public User findUserByEmail(String email) {
         User user = null;
@@ -2,12 +2,14 @@ package rs.raf.demo.repositories.user;
 
 import rs.raf.demo.entities.User;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface UserRepository {
     public User addUser(User user);
     public List<User> allUsers();
     public User findUser(Integer id);
+    public List<User> findUsersByIds(Collection<Integer> ids);
     public User findUserByEmail(String email);
     public User updateUser(User user);
     public void deleteUser(Integer id);
@@ -0,0 +1,125 @@
+package rs.raf.demo.repositories.visitor;
+
+import rs.raf.demo.entities.VisitorMark;
+import rs.raf.demo.repositories.MySqlAbstractRepository;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MySqlVisitorReactionRepository extends MySqlAbstractRepository implements VisitorReactionRepository {
+
+    // Target ids per mark, sorted; null when the marks could not be read
+    @Override
+    public Map<Integer, int[]> findMarks(String visitorId) {
+        Map<Integer, List<Integer>> ids = new HashMap<>();
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement(
+                "SELECT mark, target_id FROM visitor_reaction WHERE visitor_id = ? ORDER BY mark, target_id");
+            preparedStatement.setString(1, visitorId);
+            resultSet = preparedStatement.executeQuery();
+            while (resultSet.next()) {
+                ids.computeIfAbsent(resultSet.getInt("mark"), mark -> new ArrayList<>()).add(resultSet.getInt("target_id"));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        Map<Integer, int[]> marks = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> entry : ids.entrySet()) {
+            marks.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        return marks;
+    }
+
+    // Both batches commit together; false means nothing was written and the caller should retry
+    @Override
+    public boolean saveMarks(List<VisitorMark> added, List<VisitorMark> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return true;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = this.newConnection();
+            connection.setAutoCommit(false);
+
+            if (!added.isEmpty()) {
+                preparedStatement = connection.prepareStatement(
+                    "INSERT IGNORE INTO visitor_reaction (visitor_id, mark, target_id) VALUES(?, ?, ?)");
+                this.bindMarks(preparedStatement, added);
+                preparedStatement.executeBatch();
+                this.closeStatement(preparedStatement);
+                preparedStatement = null;
+            }
+
+            if (!removed.isEmpty()) {
+                preparedStatement = connection.prepareStatement(
+                    "DELETE FROM visitor_reaction WHERE visitor_id = ? AND mark = ? AND target_id = ?");
+                this.bindMarks(preparedStatement, removed);
+                preparedStatement.executeBatch();
+            }
+
+            connection.commit();
+            return true;
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeConnection(connection);
+        }
+    }
+
+    // Every visitor's marks of the given kinds on the given targets, e.g. when the targets are deleted
+    @Override
+    public void deleteMarks(List<Integer> marks, List<Integer> targetIds) {
+        if (marks.isEmpty() || targetIds.isEmpty()) {
+            return;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement(
+                "DELETE FROM visitor_reaction WHERE mark IN " + this.inClause(marks.size()) +
+                " AND target_id IN " + this.inClause(targetIds.size()));
+            int index = this.bindIds(preparedStatement, 1, marks);
+            this.bindIds(preparedStatement, index, targetIds);
+            preparedStatement.executeUpdate();
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeConnection(connection);
+        }
+    }
+
+    private void bindMarks(PreparedStatement preparedStatement, List<VisitorMark> marks) throws SQLException {
+        for (VisitorMark mark : marks) {
+            preparedStatement.setString(1, mark.getVisitorId());
+            preparedStatement.setInt(2, mark.getMark());
+            preparedStatement.setInt(3, mark.getTargetId());
+            preparedStatement.addBatch();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package rs.raf.demo.repositories.visitor;
+
+import rs.raf.demo.repositories.MySqlAbstractRepository;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class MySqlVisitorSketchRepository extends MySqlAbstractRepository implements VisitorSketchRepository {
+
+    private static final int PURGE_CHUNK = 5000;
+
+    @Override
+    public byte[] findSketch(Integer eventId, LocalDate day) {
+        byte[] registers = null;
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            if (day == null) {
+                preparedStatement = connection.prepareStatement("SELECT registers FROM event_visitor_sketch WHERE event_id = ?");
+            } else {
+                preparedStatement = connection.prepareStatement(
+                    "SELECT registers FROM event_visitor_sketch_daily WHERE event_id = ? AND day = ?");
+                preparedStatement.setDate(2, Date.valueOf(day));
+            }
+            preparedStatement.setInt(1, eventId);
+            resultSet = preparedStatement.executeQuery();
+            if (resultSet.next()) {
+                registers = resultSet.getBytes("registers");
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return registers;
+    }
+
+    @Override
+    public Map<LocalDate, byte[]> findDailySketches(Integer eventId, LocalDate from) {
+        Map<LocalDate, byte[]> sketches = new TreeMap<>();
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement(
+                "SELECT day, registers FROM event_visitor_sketch_daily WHERE event_id = ? AND day >= ?");
+            preparedStatement.setInt(1, eventId);
+            preparedStatement.setDate(2, Date.valueOf(from));
+            resultSet = preparedStatement.executeQuery();
+            while (resultSet.next()) {
+                sketches.put(resultSet.getDate("day").toLocalDate(), resultSet.getBytes("registers"));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return sketches;
+    }
+
+    // Meant to run inside a UnitOfWork so the rows stay locked until the merged sketches are saved
+    @Override
+    public Map<Integer, byte[]> findSketchesForUpdate(LocalDate day, List<Integer> eventIds) {
+        Map<Integer, byte[]> sketches = new HashMap<>();
+        if (eventIds.isEmpty()) {
+            return sketches;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            if (day == null) {
+                preparedStatement = connection.prepareStatement(
+                    "SELECT event_id, registers FROM event_visitor_sketch WHERE event_id IN " + this.inClause(eventIds.size()) +
+                    " FOR UPDATE");
+                this.bindIds(preparedStatement, 1, eventIds);
+            } else {
+                preparedStatement = connection.prepareStatement(
+                    "SELECT event_id, registers FROM event_visitor_sketch_daily WHERE day = ? AND event_id IN " +
+                    this.inClause(eventIds.size()) + " FOR UPDATE");
+                preparedStatement.setDate(1, Date.valueOf(day));
+                this.bindIds(preparedStatement, 2, eventIds);
+            }
+            resultSet = preparedStatement.executeQuery();
+            while (resultSet.next()) {
+                sketches.put(resultSet.getInt("event_id"), resultSet.getBytes("registers"));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return sketches;
+    }
+
+    // Runs on its own before the merge transaction, so the rows exist to be locked there. INSERT IGNORE leaves
+    // sketches another node already created untouched; selecting from event skips events deleted since they were visited
+    @Override
+    public void createMissingSketches(LocalDate day, List<Integer> eventIds, byte[] emptySketch) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = this.newConnection();
+
+            int index = 1;
+            if (day == null) {
+                preparedStatement = connection.prepareStatement(
+                    "INSERT IGNORE INTO event_visitor_sketch (event_id, registers) SELECT id, ? FROM event WHERE id IN " +
+                    this.inClause(eventIds.size()));
+            } else {
+                preparedStatement = connection.prepareStatement(
+                    "INSERT IGNORE INTO event_visitor_sketch_daily (event_id, day, registers) SELECT id, ?, ? FROM event WHERE id IN " +
+                    this.inClause(eventIds.size()));
+                preparedStatement.setDate(index++, Date.valueOf(day));
+            }
+            preparedStatement.setBytes(index++, emptySketch);
+            this.bindIds(preparedStatement, index, eventIds);
+            preparedStatement.executeUpdate();
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeConnection(connection);
+        }
+    }
+
+    // Only ever writes rows read with findSketchesForUpdate in the same unit of work, i.e. already merged
+    @Override
+    public void saveSketches(LocalDate day, Map<Integer, byte[]> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = this.newConnection();
+
+            if (day == null) {
+                preparedStatement = connection.prepareStatement("UPDATE event_visitor_sketch SET registers = ? WHERE event_id = ?");
+            } else {
+                preparedStatement = connection.prepareStatement(
+                    "UPDATE event_visitor_sketch_daily SET registers = ? WHERE event_id = ? AND day = ?");
+            }
+            for (Map.Entry<Integer, byte[]> sketch : sketches.entrySet()) {
+                preparedStatement.setBytes(1, sketch.getValue());
+                preparedStatement.setInt(2, sketch.getKey());
+                if (day != null) {
+                    preparedStatement.setDate(3, Date.valueOf(day));
+                }
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeConnection(connection);
+        }
+    }
+
+    @Override
+    public int deleteDailySketchesBefore(LocalDate day) {
+        int deleted = 0;
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement(
+                "DELETE FROM event_visitor_sketch_daily WHERE day < ? LIMIT " + PURGE_CHUNK);
+            preparedStatement.setDate(1, Date.valueOf(day));
+            int rows;
+            do {
+                rows = preparedStatement.executeUpdate();
+                deleted += rows;
+            } while (rows == PURGE_CHUNK);
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeConnection(connection);
+        }
+
+        return deleted;
+    }
+}
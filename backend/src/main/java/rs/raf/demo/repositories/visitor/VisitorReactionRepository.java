@@ -0,0 +1,12 @@
+package rs.raf.demo.repositories.visitor;
+
+import rs.raf.demo.entities.VisitorMark;
+
+import java.util.List;
+import java.util.Map;
+
+public interface VisitorReactionRepository {
+    public Map<Integer, int[]> findMarks(String visitorId);
+    public boolean saveMarks(List<VisitorMark> added, List<VisitorMark> removed);
+    public void deleteMarks(List<Integer> marks, List<Integer> targetIds);
+}
@@ -0,0 +1,15 @@
+package rs.raf.demo.repositories.visitor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// A null day addresses the event's lifetime sketch
+public interface VisitorSketchRepository {
+    public byte[] findSketch(Integer eventId, LocalDate day);
+    public Map<LocalDate, byte[]> findDailySketches(Integer eventId, LocalDate from);
+    public Map<Integer, byte[]> findSketchesForUpdate(LocalDate day, List<Integer> eventIds);
+    public void createMissingSketches(LocalDate day, List<Integer> eventIds, byte[] emptySketch);
+    public void saveSketches(LocalDate day, Map<Integer, byte[]> sketches);
+    public int deleteDailySketchesBefore(LocalDate day);
+}
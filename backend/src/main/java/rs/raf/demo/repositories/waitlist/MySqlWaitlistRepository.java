@@ -0,0 +1,286 @@
+package rs.raf.demo.repositories.waitlist;
+
+import rs.raf.demo.entities.RSVP;
+import rs.raf.demo.entities.WaitlistEntry;
+import rs.raf.demo.repositories.MySqlAbstractRepository;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MySqlWaitlistRepository extends MySqlAbstractRepository implements WaitlistRepository {
+
+    // Returns null when the person is already waiting for, or already registered for, this event. The registration
+    // check is part of the insert, so nobody with a seat can take a queue position and hold up direct signups
+    @Override
+    public WaitlistEntry addEntry(WaitlistEntry entry) {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement(
+                "INSERT INTO rsvp_waitlist (user_identifier, event_id, joined_at) SELECT ?, ?, ? FROM DUAL " +
+                "WHERE NOT EXISTS (SELECT 1 FROM rsvp WHERE user_identifier = ? AND event_id = ?)");
+            preparedStatement.setString(1, entry.getUserIdentifier());
+            preparedStatement.setInt(2, entry.getEventId());
+            preparedStatement.setTimestamp(3, Timestamp.valueOf(entry.getJoinedAt()));
+            preparedStatement.setString(4, entry.getUserIdentifier());
+            preparedStatement.setInt(5, entry.getEventId());
+            if (preparedStatement.executeUpdate() == 0) {
+                return null;
+            }
+
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return null;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeConnection(connection);
+        }
+
+        return this.findEntry(entry.getEventId(), entry.getUserIdentifier());
+    }
+
+    @Override
+    public WaitlistEntry findEntry(Integer eventId, String userIdentifier) {
+        WaitlistEntry entry = null;
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement(
+                "SELECT w.*, (SELECT COUNT(*) FROM rsvp_waitlist o WHERE o.event_id = w.event_id AND o.id <= w.id) AS position " +
+                "FROM rsvp_waitlist w WHERE w.event_id = ? AND w.user_identifier = ?");
+            preparedStatement.setInt(1, eventId);
+            preparedStatement.setString(2, userIdentifier);
+            resultSet = preparedStatement.executeQuery();
+
+            if (resultSet.next()) {
+                entry = this.mapResultSetToEntry(resultSet);
+                entry.setPosition(resultSet.getInt("position"));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return entry;
+    }
+
+    @Override
+    public List<WaitlistEntry> findEntriesByEventId(Integer eventId) {
+        List<WaitlistEntry> entries = new ArrayList<>();
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement("SELECT * FROM rsvp_waitlist WHERE event_id = ? ORDER BY id");
+            preparedStatement.setInt(1, eventId);
+            resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                WaitlistEntry entry = this.mapResultSetToEntry(resultSet);
+                entry.setPosition(entries.size() + 1);
+                entries.add(entry);
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return entries;
+    }
+
+    @Override
+    public boolean deleteEntry(Integer eventId, String userIdentifier) {
+        boolean deleted = false;
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = this.newConnection();
+
+            preparedStatement = connection.prepareStatement("DELETE FROM rsvp_waitlist WHERE event_id = ? AND user_identifier = ?");
+            preparedStatement.setInt(1, eventId);
+            preparedStatement.setString(2, userIdentifier);
+            deleted = preparedStatement.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeConnection(connection);
+        }
+
+        return deleted;
+    }
+
+    // Moves up to `limit` of the oldest waiting people into free seats in one transaction. The counter row is
+    // locked first - the row every signup path updates - so a promotion and a direct signup cannot share a seat.
+    @Override
+    public List<RSVP> promote(Integer eventId, int limit) {
+        List<RSVP> promoted = new ArrayList<>();
+        List<Integer> entryIds = new ArrayList<>();
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+            connection.setAutoCommit(false);
+
+            // Events created after the schema seed get their counter here if nobody signed up directly yet
+            preparedStatement = connection.prepareStatement(
+                "INSERT IGNORE INTO event_rsvp_counter (event_id, taken) SELECT ?, COUNT(*) FROM rsvp WHERE event_id = ?");
+            preparedStatement.setInt(1, eventId);
+            preparedStatement.setInt(2, eventId);
+            preparedStatement.executeUpdate();
+            this.closeStatement(preparedStatement);
+
+            preparedStatement = connection.prepareStatement(
+                "SELECT c.taken, e.max_capacity FROM event_rsvp_counter c JOIN event e ON e.id = c.event_id " +
+                "WHERE c.event_id = ? FOR UPDATE");
+            preparedStatement.setInt(1, eventId);
+            resultSet = preparedStatement.executeQuery();
+            int free = 0;
+            if (resultSet.next()) {
+                int taken = resultSet.getInt("taken");
+                int capacity = resultSet.getInt("max_capacity");
+                free = resultSet.wasNull() || capacity <= 0 ? limit : Math.min(limit, capacity - taken);
+            }
+            this.closeResultSet(resultSet);
+            resultSet = null;
+            this.closeStatement(preparedStatement);
+            preparedStatement = null;
+
+            if (free > 0) {
+                // Whoever got a seat some other way since joining leaves the queue without taking a second one
+                preparedStatement = connection.prepareStatement(
+                    "DELETE w FROM rsvp_waitlist w JOIN rsvp r ON r.event_id = w.event_id AND r.user_identifier = w.user_identifier " +
+                    "WHERE w.event_id = ?");
+                preparedStatement.setInt(1, eventId);
+                preparedStatement.executeUpdate();
+                this.closeStatement(preparedStatement);
+
+                preparedStatement = connection.prepareStatement(
+                    "SELECT id, user_identifier FROM rsvp_waitlist WHERE event_id = ? ORDER BY id LIMIT ? FOR UPDATE");
+                preparedStatement.setInt(1, eventId);
+                preparedStatement.setInt(2, free);
+                resultSet = preparedStatement.executeQuery();
+                LocalDateTime now = LocalDateTime.now();
+                while (resultSet.next()) {
+                    entryIds.add(resultSet.getInt("id"));
+                    promoted.add(new RSVP(resultSet.getString("user_identifier"), eventId, now));
+                }
+                this.closeResultSet(resultSet);
+                resultSet = null;
+                this.closeStatement(preparedStatement);
+                preparedStatement = null;
+            }
+
+            if (!promoted.isEmpty()) {
+                preparedStatement = connection.prepareStatement(
+                    "INSERT INTO rsvp (user_identifier, event_id, registration_date) VALUES(?, ?, ?)",
+                    new String[]{"id"}
+                );
+                for (RSVP rsvp : promoted) {
+                    preparedStatement.setString(1, rsvp.getUserIdentifier());
+                    preparedStatement.setInt(2, eventId);
+                    preparedStatement.setTimestamp(3, Timestamp.valueOf(rsvp.getRegistrationDate()));
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                resultSet = preparedStatement.getGeneratedKeys();
+                for (RSVP rsvp : promoted) {
+                    if (resultSet.next()) {
+                        rsvp.setId(resultSet.getInt(1));
+                    }
+                }
+                this.closeResultSet(resultSet);
+                resultSet = null;
+                this.closeStatement(preparedStatement);
+
+                preparedStatement = connection.prepareStatement("UPDATE event_rsvp_counter SET taken = taken + ? WHERE event_id = ?");
+                preparedStatement.setInt(1, promoted.size());
+                preparedStatement.setInt(2, eventId);
+                preparedStatement.executeUpdate();
+                this.closeStatement(preparedStatement);
+
+                preparedStatement = connection.prepareStatement(
+                    "DELETE FROM rsvp_waitlist WHERE id IN " + this.inClause(entryIds.size()));
+                this.bindIds(preparedStatement, 1, entryIds);
+                preparedStatement.executeUpdate();
+            }
+
+            connection.commit();
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            promoted.clear();
+        } finally {
+            this.closeStatement(preparedStatement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return promoted;
+    }
+
+    // Events with people waiting although a seat is free, e.g. because a signal was lost in a restart
+    @Override
+    public List<Integer> findEventsWithFreeSeats() {
+        List<Integer> eventIds = new ArrayList<>();
+
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = this.newConnection();
+
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery(
+                "SELECT DISTINCT w.event_id FROM rsvp_waitlist w JOIN event e ON e.id = w.event_id " +
+                "LEFT JOIN event_rsvp_counter c ON c.event_id = w.event_id " +
+                "WHERE c.taken IS NULL OR e.max_capacity IS NULL OR e.max_capacity <= 0 OR c.taken < e.max_capacity");
+            while (resultSet.next()) {
+                eventIds.add(resultSet.getInt("event_id"));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            this.closeStatement(statement);
+            this.closeResultSet(resultSet);
+            this.closeConnection(connection);
+        }
+
+        return eventIds;
+    }
+
+    private WaitlistEntry mapResultSetToEntry(ResultSet resultSet) throws SQLException {
+        return new WaitlistEntry(
+            resultSet.getInt("id"),
+            resultSet.getString("user_identifier"),
+            resultSet.getInt("event_id"),
+            resultSet.getTimestamp("joined_at").toLocalDateTime()
+        );
+    }
+}
@@ -0,0 +1,15 @@
+package rs.raf.demo.repositories.waitlist;
+
+import rs.raf.demo.entities.RSVP;
+import rs.raf.demo.entities.WaitlistEntry;
+
+import java.util.List;
+
+public interface WaitlistRepository {
+    public WaitlistEntry addEntry(WaitlistEntry entry);
+    public WaitlistEntry findEntry(Integer eventId, String userIdentifier);
+    public List<WaitlistEntry> findEntriesByEventId(Integer eventId);
+    public boolean deleteEntry(Integer eventId, String userIdentifier);
+    public List<RSVP> promote(Integer eventId, int limit);
+    public List<Integer> findEventsWithFreeSeats();
+}
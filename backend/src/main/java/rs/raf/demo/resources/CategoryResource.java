@@ -161,7 +161,7 @@ public class CategoryResource {
         try {
             int offset = (page - 1) * limit;
             List<Event> events = this.eventService.findEventsByCategoryPaginated(categoryId, offset, limit);
-            events = this.eventService.populateEventsWithTags(events);
+            events = this.eventService.populateEventsWithCompleteData(events);
             
             Map<String, Object> response = new HashMap<>();
             response.put("events", events);
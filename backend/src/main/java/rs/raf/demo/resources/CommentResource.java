@@ -1,13 +1,16 @@
 package rs.raf.demo.resources;
 
 import rs.raf.demo.entities.Comment;
+import rs.raf.demo.entities.ReactionToggle;
+import rs.raf.demo.pagination.Cursor;
+import rs.raf.demo.pagination.CursorPage;
 import rs.raf.demo.requests.CommentCreateRequest;
 import rs.raf.demo.services.CommentService;
 import rs.raf.demo.services.EventService;
+import rs.raf.demo.services.VisitorService;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpSession;
 import javax.validation.Valid;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
@@ -25,6 +28,9 @@ public class CommentResource {
     @Inject
     private EventService eventService;
 
+    @Inject
+    private VisitorService visitorService;
+
     @Context
     private HttpServletRequest request;
 
@@ -68,12 +74,30 @@ public class CommentResource {
     @Produces(MediaType.APPLICATION_JSON)
     public Response getCommentsByEventPaginated(@PathParam("eventId") Integer eventId,
                                                @QueryParam("page") @DefaultValue("1") int page,
-                                               @QueryParam("limit") @DefaultValue("10") int limit) {
+                                               @QueryParam("limit") @DefaultValue("10") int limit,
+                                               @QueryParam("cursor") String cursor) {
         if (!this.eventService.existsById(eventId)) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Event not found");
             return Response.status(Response.Status.NOT_FOUND).entity(response).build();
         }
+
+        if (cursor != null) {
+            Cursor position = Cursor.decode(cursor);
+            if (position == null && !cursor.trim().isEmpty()) {
+                Map<String, String> response = new HashMap<>();
+                response.put("message", "Invalid cursor");
+                return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
+            }
+
+            CursorPage<Comment> commentPage = this.commentService.findCommentsByEventIdPage(eventId, position, limit);
+            Map<String, Object> response = new HashMap<>();
+            response.put("comments", commentPage.getItems());
+            response.put("limit", limit);
+            response.put("eventId", eventId);
+            response.put("nextCursor", commentPage.getNextCursor());
+            return Response.ok(response).build();
+        }
         
         int offset = (page - 1) * limit;
         List<Comment> comments = this.commentService.findCommentsByEventIdPaginated(eventId, offset, limit);
@@ -90,43 +114,21 @@ public class CommentResource {
     @Path("/{id}/like")
     @Produces(MediaType.APPLICATION_JSON)
     public Response likeComment(@PathParam("id") Integer commentId) {
-        if (!this.commentService.existsById(commentId)) {
+        ReactionToggle toggle = this.commentService.toggleLike(commentId, this.visitorService.currentVisitor(this.request));
+        if (toggle == null) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Comment not found");
             return Response.status(Response.Status.NOT_FOUND).entity(response).build();
         }
 
-        HttpSession session = request.getSession();
-        String likedKey = "liked_comment_" + commentId;
-        String dislikedKey = "disliked_comment_" + commentId;
-        
-        Boolean hasLiked = (Boolean) session.getAttribute(likedKey);
-        Boolean hasDisliked = (Boolean) session.getAttribute(dislikedKey);
-        
         Map<String, Object> response = new HashMap<>();
-        
-        if (Boolean.TRUE.equals(hasLiked)) {
-            this.commentService.decrementLikes(commentId);
-            session.removeAttribute(likedKey);
-            response.put("message", "Like removed from comment");
-            response.put("action", "unliked");
-        } else {
-            if (Boolean.TRUE.equals(hasDisliked)) {
-                this.commentService.decrementDislikes(commentId);
-                session.removeAttribute(dislikedKey);
-            }
-            this.commentService.incrementLikes(commentId);
-            session.setAttribute(likedKey, true);
-            response.put("message", "Comment liked");
-            response.put("action", "liked");
-        }
-        
-        Comment updatedComment = this.commentService.findComment(commentId);
-        response.put("hasLiked", session.getAttribute(likedKey) != null);
-        response.put("hasDisliked", session.getAttribute(dislikedKey) != null);
-        response.put("likeCount", updatedComment.getLikeCount());
-        response.put("dislikeCount", updatedComment.getDislikeCount());
-        
+        response.put("message", toggle.isLiked() ? "Comment liked" : "Like removed from comment");
+        response.put("action", toggle.getAction());
+        response.put("hasLiked", toggle.isLiked());
+        response.put("hasDisliked", toggle.isDisliked());
+        response.put("likeCount", toggle.getCounts().getLikeCount());
+        response.put("dislikeCount", toggle.getCounts().getDislikeCount());
+
         return Response.ok(response).build();
     }
 
@@ -134,43 +136,21 @@ public class CommentResource {
     @Path("/{id}/dislike")
     @Produces(MediaType.APPLICATION_JSON)
     public Response dislikeComment(@PathParam("id") Integer commentId) {
-        if (!this.commentService.existsById(commentId)) {
+        ReactionToggle toggle = this.commentService.toggleDislike(commentId, this.visitorService.currentVisitor(this.request));
+        if (toggle == null) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Comment not found");
             return Response.status(Response.Status.NOT_FOUND).entity(response).build();
         }
 
-        HttpSession session = request.getSession();
-        String likedKey = "liked_comment_" + commentId;
-        String dislikedKey = "disliked_comment_" + commentId;
-        
-        Boolean hasLiked = (Boolean) session.getAttribute(likedKey);
-        Boolean hasDisliked = (Boolean) session.getAttribute(dislikedKey);
-        
         Map<String, Object> response = new HashMap<>();
-        
-        if (Boolean.TRUE.equals(hasDisliked)) {
-            this.commentService.decrementDislikes(commentId);
-            session.removeAttribute(dislikedKey);
-            response.put("message", "Dislike removed from comment");
-            response.put("action", "undisliked");
-        } else {
-            if (Boolean.TRUE.equals(hasLiked)) {
-                this.commentService.decrementLikes(commentId);
-                session.removeAttribute(likedKey);
-            }
-            this.commentService.incrementDislikes(commentId);
-            session.setAttribute(dislikedKey, true);
-            response.put("message", "Comment disliked");
-            response.put("action", "disliked");
-        }
-        
-        Comment updatedComment = this.commentService.findComment(commentId);
-        response.put("hasLiked", session.getAttribute(likedKey) != null);
-        response.put("hasDisliked", session.getAttribute(dislikedKey) != null);
-        response.put("likeCount", updatedComment.getLikeCount());
-        response.put("dislikeCount", updatedComment.getDislikeCount());
-        
+        response.put("message", toggle.isDisliked() ? "Comment disliked" : "Dislike removed from comment");
+        response.put("action", toggle.getAction());
+        response.put("hasLiked", toggle.isLiked());
+        response.put("hasDisliked", toggle.isDisliked());
+        response.put("likeCount", toggle.getCounts().getLikeCount());
+        response.put("dislikeCount", toggle.getCounts().getDislikeCount());
+
         return Response.ok(response).build();
     }
 }
\ No newline at end of file
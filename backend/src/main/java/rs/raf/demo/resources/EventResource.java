@@ -1,19 +1,26 @@
 package rs.raf.demo.resources;
 
 import rs.raf.demo.entities.Event;
+import rs.raf.demo.entities.EventPage;
+import rs.raf.demo.entities.ReactionToggle;
+import rs.raf.demo.pagination.Cursor;
+import rs.raf.demo.pagination.CursorPage;
+import rs.raf.demo.search.EventSearchPage;
+import rs.raf.demo.services.EventPageService;
 import rs.raf.demo.services.EventService;
+import rs.raf.demo.services.VisitorService;
 import rs.raf.demo.services.TagService;
 import rs.raf.demo.requests.EventUpdateRequest;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpSession;
 import javax.validation.Valid;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,12 +28,20 @@ import java.util.Map;
 @Path("/events")
 public class EventResource {
 
+    private static final int MAX_REACTION_LOOKUP_COMMENTS = 100;
+
     @Inject
     private EventService eventService;
 
     @Inject
     private TagService tagService;
 
+    @Inject
+    private VisitorService visitorService;
+
+    @Inject
+    private EventPageService eventPageService;
+
     @Context
     private HttpServletRequest request;
 
@@ -34,7 +49,7 @@ public class EventResource {
     @Produces(MediaType.APPLICATION_JSON)
     public Response all() {
         List<Event> events = this.eventService.allEvents();
-        events = this.eventService.populateEventsWithTags(events);
+        events = this.eventService.populateEventsWithCompleteData(events);
         return Response.ok(events).build();
     }
 
@@ -71,7 +86,7 @@ public class EventResource {
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
     public Response find(@PathParam("id") Integer id) {
-        Event event = this.eventService.getEventWithTags(id);
+        Event event = this.eventService.findEvent(id);
         if (event == null) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Event not found");
@@ -81,6 +96,27 @@ public class EventResource {
         return Response.ok(event).build();
     }
 
+    // Everything the detail page needs in one round trip; view=false loads the page without counting a view
+    @GET
+    @Path("/{id}/page")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getPage(@PathParam("id") Integer id,
+                            @QueryParam("view") @DefaultValue("true") boolean recordView,
+                            @QueryParam("commentLimit") @DefaultValue("10") int commentLimit,
+                            @QueryParam("similarLimit") @DefaultValue("3") int similarLimit,
+                            @QueryParam("mostReactedLimit") @DefaultValue("3") int mostReactedLimit) {
+        String visitorId = recordView
+                ? this.visitorService.currentVisitor(this.request)
+                : this.visitorService.knownVisitor(this.request);
+        EventPage page = this.eventPageService.loadPage(id, visitorId, recordView, commentLimit, similarLimit, mostReactedLimit);
+        if (page == null) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Event not found");
+            return Response.status(Response.Status.NOT_FOUND).entity(response).build();
+        }
+        return Response.ok(page).build();
+    }
+
     @PUT
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -142,16 +178,34 @@ public class EventResource {
     @Path("/paginated")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getAllPaginated(@QueryParam("page") @DefaultValue("1") int page,
-                                   @QueryParam("limit") @DefaultValue("10") int limit) {
+                                   @QueryParam("limit") @DefaultValue("10") int limit,
+                                   @QueryParam("cursor") String cursor) {
+        if (cursor != null) {
+            Cursor position = Cursor.decode(cursor);
+            if (position == null && !cursor.trim().isEmpty()) {
+                Map<String, String> response = new HashMap<>();
+                response.put("message", "Invalid cursor");
+                return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
+            }
+
+            CursorPage<Event> eventPage = this.eventService.allEventsPage(position, limit);
+            Map<String, Object> response = new HashMap<>();
+            response.put("events", this.eventService.populateEventsWithCompleteData(eventPage.getItems()));
+            response.put("limit", limit);
+            response.put("nextCursor", eventPage.getNextCursor());
+            response.put("total", this.eventService.eventCount());
+            return Response.ok(response).build();
+        }
+
         int offset = (page - 1) * limit;
         List<Event> events = this.eventService.allEventsPaginated(offset, limit);
-        List<Event> allEvents = this.eventService.allEvents();
+        events = this.eventService.populateEventsWithCompleteData(events);
         
         Map<String, Object> response = new HashMap<>();
         response.put("events", events);
         response.put("page", page);
         response.put("limit", limit);
-        response.put("total", allEvents.size());
+        response.put("total", this.eventService.eventCount());
         return Response.ok(response).build();
     }
 
@@ -162,27 +216,29 @@ public class EventResource {
                                 @QueryParam("page") @DefaultValue("1") int page,
                                 @QueryParam("limit") @DefaultValue("10") int limit) {
         List<Event> events;
-        List<Event> allResults;
+        int total;
         String actualSearchTerm = "";
         
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
-            allResults = this.eventService.allEvents();
-            
             if (page > 0 && limit > 0) {
                 int offset = (page - 1) * limit;
                 events = this.eventService.allEventsPaginated(offset, limit);
+                total = this.eventService.eventCount();
             } else {
-                events = allResults;
+                events = this.eventService.allEvents();
+                total = events.size();
             }
         } else {
             actualSearchTerm = searchTerm.trim();
-            allResults = this.eventService.searchEventsByTitleOrDescription(actualSearchTerm);
             
             if (page > 0 && limit > 0) {
                 int offset = (page - 1) * limit;
-                events = this.eventService.searchEventsByTitleOrDescriptionPaginated(actualSearchTerm, offset, limit);
+                EventSearchPage searchPage = this.eventService.searchEventsByTitleOrDescriptionPaginated(actualSearchTerm, offset, limit);
+                events = searchPage.getEvents();
+                total = searchPage.getTotal();
             } else {
-                events = allResults;
+                events = this.eventService.searchEventsByTitleOrDescription(actualSearchTerm);
+                total = events.size();
             }
         }
 
@@ -193,7 +249,7 @@ public class EventResource {
         response.put("searchTerm", actualSearchTerm);
         response.put("page", page);
         response.put("limit", limit);
-        response.put("total", allResults.size());
+        response.put("total", total);
         return Response.ok(response).build();
     }
 
@@ -203,14 +259,16 @@ public class EventResource {
     public Response getEventsByCategory(@PathParam("categoryId") Integer categoryId,
                                        @QueryParam("page") @DefaultValue("1") int page,
                                        @QueryParam("limit") @DefaultValue("10") int limit) {
-        List<Event> allCategoryEvents = this.eventService.findEventsByCategory(categoryId);
         List<Event> events;
+        int total;
         
         if (page > 0 && limit > 0) {
             int offset = (page - 1) * limit;
             events = this.eventService.findEventsByCategoryPaginated(categoryId, offset, limit);
+            total = this.eventService.countEventsByCategory(categoryId);
         } else {
-            events = allCategoryEvents;
+            events = this.eventService.findEventsByCategory(categoryId);
+            total = events.size();
         }
 
         events = this.eventService.populateEventsWithCompleteData(events);
@@ -220,7 +278,7 @@ public class EventResource {
         response.put("categoryId", categoryId);
         response.put("page", page);
         response.put("limit", limit);
-        response.put("total", allCategoryEvents.size());
+        response.put("total", total);
         return Response.ok(response).build();
     }
 
@@ -230,14 +288,16 @@ public class EventResource {
     public Response getEventsByTag(@PathParam("tagId") Integer tagId,
                                   @QueryParam("page") @DefaultValue("1") int page,
                                   @QueryParam("limit") @DefaultValue("10") int limit) {
-        List<Event> allTagEvents = this.eventService.findEventsByTag(tagId);
         List<Event> events;
+        int total;
         
         if (page > 0 && limit > 0) {
             int offset = (page - 1) * limit;
             events = this.eventService.findEventsByTagPaginated(tagId, offset, limit);
+            total = this.eventService.countEventsByTag(tagId);
         } else {
-            events = allTagEvents;
+            events = this.eventService.findEventsByTag(tagId);
+            total = events.size();
         }
 
         events = this.eventService.populateEventsWithCompleteData(events);
@@ -247,7 +307,7 @@ public class EventResource {
         response.put("tagId", tagId);
         response.put("page", page);
         response.put("limit", limit);
-        response.put("total", allTagEvents.size());
+        response.put("total", total);
         return Response.ok(response).build();
     }
 
@@ -256,6 +316,7 @@ public class EventResource {
     @Produces(MediaType.APPLICATION_JSON)
     public Response getEventsByAuthor(@PathParam("authorId") Integer authorId) {
         List<Event> events = this.eventService.findEventsByAuthor(authorId);
+        events = this.eventService.populateEventsWithCompleteData(events);
         return Response.ok(events).build();
     }
 
@@ -263,8 +324,7 @@ public class EventResource {
     @Path("/latest")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getLatestEvents(@QueryParam("limit") @DefaultValue("10") int limit) {
-        List<Event> events = this.eventService.findLatestEvents(limit);
-        events = this.eventService.populateEventsWithCompleteData(events);
+        List<Event> events = this.eventService.latestFeed(limit);
         return Response.ok(events).build();
     }
 
@@ -272,8 +332,7 @@ public class EventResource {
     @Path("/most-visited")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getMostVisitedEvents(@QueryParam("limit") @DefaultValue("10") int limit) {
-        List<Event> events = this.eventService.findMostVisitedEvents(limit);
-        events = this.eventService.populateEventsWithCompleteData(events);
+        List<Event> events = this.eventService.mostVisitedFeed(limit);
         return Response.ok(events).build();
     }
 
@@ -281,8 +340,7 @@ public class EventResource {
     @Path("/most-visited-30days")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getMostVisitedEventsLast30Days(@QueryParam("limit") @DefaultValue("10") int limit) {
-        List<Event> events = this.eventService.findMostVisitedEventsLast30Days(limit);
-        events = this.eventService.populateEventsWithCompleteData(events);
+        List<Event> events = this.eventService.mostVisitedLast30DaysFeed(limit);
         return Response.ok(events).build();
     }
 
@@ -290,8 +348,7 @@ public class EventResource {
     @Path("/most-reacted")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getMostReactedEvents(@QueryParam("limit") @DefaultValue("3") int limit) {
-        List<Event> events = this.eventService.findMostReactedEvents(limit);
-        events = this.eventService.populateEventsWithCompleteData(events);
+        List<Event> events = this.eventService.mostReactedFeed(limit);
         return Response.ok(events).build();
     }
 
@@ -321,66 +378,81 @@ public class EventResource {
             return Response.status(Response.Status.NOT_FOUND).entity(response).build();
         }
 
-        HttpSession session = request.getSession();
-        String viewedKey = "viewed_event_" + eventId;
-        
-        if (session.getAttribute(viewedKey) == null) {
-            this.eventService.incrementViews(eventId);
-            session.setAttribute(viewedKey, true);
-            
-            Map<String, String> response = new HashMap<>();
+        Map<String, String> response = new HashMap<>();
+        if (this.eventService.recordView(eventId, this.visitorService.currentVisitor(this.request))) {
             response.put("message", "View counted");
-            return Response.ok(response).build();
         } else {
+            response.put("message", "Already viewed by this visitor");
+        }
+        return Response.ok(response).build();
+    }
+
+    @GET
+    @Path("/{id}/visitors")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getVisitors(@PathParam("id") Integer eventId,
+                                @QueryParam("days") @DefaultValue("7") int days) {
+        if (!this.eventService.existsById(eventId)) {
             Map<String, String> response = new HashMap<>();
-            response.put("message", "Already viewed in this session");
-            return Response.ok(response).build();
+            response.put("message", "Event not found");
+            return Response.status(Response.Status.NOT_FOUND).entity(response).build();
+        }
+
+        return Response.ok(this.eventService.getVisitors(eventId, days)).build();
+    }
+
+    // Reaction flags for the event and a page of its comments, e.g. ?commentIds=4,7,9, instead of one call per comment
+    @GET
+    @Path("/{id}/my-reactions")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getMyReactions(@PathParam("id") Integer eventId, @QueryParam("commentIds") String commentIdsString) {
+        if (!this.eventService.existsById(eventId)) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Event not found");
+            return Response.status(Response.Status.NOT_FOUND).entity(response).build();
+        }
+
+        List<Integer> commentIds = new ArrayList<>();
+        if (commentIdsString != null && !commentIdsString.trim().isEmpty()) {
+            try {
+                for (String commentId : commentIdsString.split(",")) {
+                    commentIds.add(Integer.parseInt(commentId.trim()));
+                }
+            } catch (NumberFormatException e) {
+                Map<String, String> response = new HashMap<>();
+                response.put("message", "commentIds must be a comma-separated list of ids");
+                return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
+            }
         }
+        if (commentIds.size() > MAX_REACTION_LOOKUP_COMMENTS) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "At most " + MAX_REACTION_LOOKUP_COMMENTS + " comment ids per request");
+            return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
+        }
+
+        return Response.ok(this.eventService.getReactionFlags(eventId, this.visitorService.knownVisitor(this.request),
+                commentIds)).build();
     }
 
     @POST
     @Path("/{id}/like")
     @Produces(MediaType.APPLICATION_JSON)
     public Response likeEvent(@PathParam("id") Integer eventId) {
-        if (!this.eventService.existsById(eventId)) {
+        ReactionToggle toggle = this.eventService.toggleLike(eventId, this.visitorService.currentVisitor(this.request));
+        if (toggle == null) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Event not found");
             return Response.status(Response.Status.NOT_FOUND).entity(response).build();
         }
 
-        HttpSession session = request.getSession();
-        String likedKey = "liked_event_" + eventId;
-        String dislikedKey = "disliked_event_" + eventId;
-        
-        Boolean hasLiked = (Boolean) session.getAttribute(likedKey);
-        Boolean hasDisliked = (Boolean) session.getAttribute(dislikedKey);
-        
         Map<String, Object> response = new HashMap<>();
-        
-        if (Boolean.TRUE.equals(hasLiked)) {
-            this.eventService.decrementLikes(eventId);
-            session.removeAttribute(likedKey);
-            response.put("message", "Like removed");
-            response.put("action", "unliked");
-            response.put("hasLiked", false);
-            response.put("hasDisliked", Boolean.TRUE.equals(hasDisliked));
-        } else {
-            if (Boolean.TRUE.equals(hasDisliked)) {
-                this.eventService.decrementDislikes(eventId);
-                session.removeAttribute(dislikedKey);
-            }
-            this.eventService.incrementLikes(eventId);
-            session.setAttribute(likedKey, true);
-            response.put("message", "Event liked");
-            response.put("action", "liked");
-            response.put("hasLiked", true);
-            response.put("hasDisliked", false);
-        }
-        
-        Event currentEvent = this.eventService.findEvent(eventId);
-        response.put("likeCount", currentEvent.getLikeCount());
-        response.put("dislikeCount", currentEvent.getDislikeCount());
-        
+        response.put("message", toggle.isLiked() ? "Event liked" : "Like removed");
+        response.put("action", toggle.getAction());
+        response.put("hasLiked", toggle.isLiked());
+        response.put("hasDisliked", toggle.isDisliked());
+        response.put("likeCount", toggle.getCounts().getLikeCount());
+        response.put("dislikeCount", toggle.getCounts().getDislikeCount());
+
         return Response.ok(response).build();
     }
 
@@ -388,45 +460,21 @@ public class EventResource {
     @Path("/{id}/dislike")
     @Produces(MediaType.APPLICATION_JSON)
     public Response dislikeEvent(@PathParam("id") Integer eventId) {
-        if (!this.eventService.existsById(eventId)) {
+        ReactionToggle toggle = this.eventService.toggleDislike(eventId, this.visitorService.currentVisitor(this.request));
+        if (toggle == null) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Event not found");
             return Response.status(Response.Status.NOT_FOUND).entity(response).build();
         }
 
-        HttpSession session = request.getSession();
-        String likedKey = "liked_event_" + eventId;
-        String dislikedKey = "disliked_event_" + eventId;
-        
-        Boolean hasLiked = (Boolean) session.getAttribute(likedKey);
-        Boolean hasDisliked = (Boolean) session.getAttribute(dislikedKey);
-        
         Map<String, Object> response = new HashMap<>();
-        
-        if (Boolean.TRUE.equals(hasDisliked)) {
-            this.eventService.decrementDislikes(eventId);
-            session.removeAttribute(dislikedKey);
-            response.put("message", "Dislike removed");
-            response.put("action", "undisliked");
-            response.put("hasDisliked", false);
-            response.put("hasLiked", Boolean.TRUE.equals(hasLiked));
-        } else {
-            if (Boolean.TRUE.equals(hasLiked)) {
-                this.eventService.decrementLikes(eventId);
-                session.removeAttribute(likedKey);
-            }
-            this.eventService.incrementDislikes(eventId);
-            session.setAttribute(dislikedKey, true);
-            response.put("message", "Event disliked");
-            response.put("action", "disliked");
-            response.put("hasDisliked", true);
-            response.put("hasLiked", false);
-        }
-        
-        Event currentEvent = this.eventService.findEvent(eventId);
-        response.put("likeCount", currentEvent.getLikeCount());
-        response.put("dislikeCount", currentEvent.getDislikeCount());
-        
+        response.put("message", toggle.isDisliked() ? "Event disliked" : "Dislike removed");
+        response.put("action", toggle.getAction());
+        response.put("hasDisliked", toggle.isDisliked());
+        response.put("hasLiked", toggle.isLiked());
+        response.put("likeCount", toggle.getCounts().getLikeCount());
+        response.put("dislikeCount", toggle.getCounts().getDislikeCount());
+
         return Response.ok(response).build();
     }
 
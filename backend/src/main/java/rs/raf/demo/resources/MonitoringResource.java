@@ -0,0 +1,52 @@
+package rs.raf.demo.resources;
+
+import rs.raf.demo.services.MonitoringService;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/monitoring")
+public class MonitoringResource {
+
+    @Inject
+    private MonitoringService monitoringService;
+
+    @GET
+    @Path("/pool")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response pool() {
+        return Response.ok(this.monitoringService.getPoolStatistics()).build();
+    }
+
+    @GET
+    @Path("/statements")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response statements() {
+        return Response.ok(this.monitoringService.getStatementStatistics()).build();
+    }
+
+    @GET
+    @Path("/views")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response views() {
+        return Response.ok(this.monitoringService.getViewCounterStatistics()).build();
+    }
+
+    @GET
+    @Path("/reactions")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response reactions() {
+        return Response.ok(this.monitoringService.getReactionCounterStatistics()).build();
+    }
+
+    @GET
+    @Path("/reference-data")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response referenceData() {
+        return Response.ok(this.monitoringService.getReferenceCacheStatistics()).build();
+    }
+}
@@ -1,12 +1,20 @@
 package rs.raf.demo.resources;
 
+import rs.raf.demo.admission.FlashSignupStatus;
+import rs.raf.demo.admission.SignupTicket;
 import rs.raf.demo.entities.Event;
 import rs.raf.demo.entities.RSVP;
+import rs.raf.demo.entities.RSVPAdmission;
+import rs.raf.demo.entities.User;
+import rs.raf.demo.entities.WaitlistEntry;
+import rs.raf.demo.pagination.Cursor;
+import rs.raf.demo.pagination.CursorPage;
 import rs.raf.demo.services.RSVPService;
 import rs.raf.demo.services.EventService;
 
 import javax.inject.Inject;
 import javax.validation.Valid;
+import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import java.util.HashMap;
@@ -26,39 +34,154 @@ public class RSVPResource {
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     public Response create(@Valid RSVP rsvp) {
-        Event event = this.eventService.findEvent(rsvp.getEventId());
-        if (event == null) {
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "Event not found");
-            return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
+        SignupTicket ticket = this.rsvpService.submitFlashSignup(rsvp);
+        if (ticket != null) {
+            return this.ticketResponse(ticket);
         }
 
-        if (this.rsvpService.isUserRegistered(rsvp.getUserIdentifier(), rsvp.getEventId())) {
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "User is already registered for this event");
+        return this.admissionResponse(this.rsvpService.admitRSVP(rsvp));
+    }
+
+    // Registers directly while seats are free, otherwise queues the user for the next freed seat. In flash mode
+    // the seats are handed out from memory and there is no waitlist, so the request is a plain flash signup
+    @POST
+    @Path("/waitlist")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response joinWaitlist(@Valid RSVP rsvp) {
+        SignupTicket ticket = this.rsvpService.submitFlashSignup(rsvp);
+        if (ticket != null) {
+            return this.ticketResponse(ticket);
+        }
+
+        RSVPAdmission admission = this.rsvpService.admitRSVP(rsvp);
+        if (admission.getStatus() != RSVPAdmission.Status.FULL) {
+            return this.admissionResponse(admission);
+        }
+
+        WaitlistEntry entry = this.rsvpService.joinWaitlist(rsvp);
+        Map<String, Object> response = new HashMap<>();
+        if (entry == null) {
+            // Registered since the FULL answer, or through the promoter
+            response.put("message", this.rsvpService.isUserRegistered(rsvp.getUserIdentifier(), rsvp.getEventId())
+                    ? "User is already registered for this event"
+                    : "User is already on the waitlist for this event");
             return Response.status(Response.Status.CONFLICT).entity(response).build();
         }
+        response.put("message", "Event is full - added to the waitlist");
+        response.put("waitlistEntry", entry);
+        return Response.status(Response.Status.ACCEPTED).entity(response).build();
+    }
 
-        if (event.getMaxCapacity() != null && event.getMaxCapacity() > 0) {
-            int currentCount = this.rsvpService.getRSVPCount(rsvp.getEventId());
-            if (currentCount >= event.getMaxCapacity()) {
-                Map<String, String> response = new HashMap<>();
-                response.put("message", "Event is full - maximum capacity reached");
-                return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
-            }
+    @GET
+    @Path("/event/{eventId}/waitlist")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getWaitlist(@PathParam("eventId") Integer eventId) {
+        if (!this.eventService.existsById(eventId)) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Event not found");
+            return Response.status(Response.Status.NOT_FOUND).entity(response).build();
         }
 
-        try {
-            RSVP savedRSVP = this.rsvpService.addRSVP(rsvp);
+        List<WaitlistEntry> entries = this.rsvpService.findWaitlist(eventId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("eventId", eventId);
+        response.put("waitlist", entries);
+        response.put("waitingCount", entries.size());
+        return Response.ok(response).build();
+    }
+
+    @GET
+    @Path("/event/{eventId}/waitlist/{userIdentifier}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getWaitlistEntry(@PathParam("eventId") Integer eventId,
+                                     @PathParam("userIdentifier") String userIdentifier) {
+        WaitlistEntry entry = this.rsvpService.findWaitlistEntry(eventId, userIdentifier);
+        if (entry == null) {
             Map<String, Object> response = new HashMap<>();
-            response.put("message", "Successfully registered for event");
-            response.put("rsvp", savedRSVP);
-            return Response.status(Response.Status.CREATED).entity(response).build();
-        } catch (Exception e) {
+            response.put("message", "User is not on the waitlist for this event");
+            response.put("isRegistered", this.rsvpService.isUserRegistered(userIdentifier, eventId));
+            return Response.status(Response.Status.NOT_FOUND).entity(response).build();
+        }
+        return Response.ok(entry).build();
+    }
+
+    @DELETE
+    @Path("/event/{eventId}/waitlist/{userIdentifier}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response leaveWaitlist(@PathParam("eventId") Integer eventId,
+                                  @PathParam("userIdentifier") String userIdentifier,
+                                  @Context ContainerRequestContext requestContext) {
+        Map<String, String> response = new HashMap<>();
+        if (!this.actsFor(requestContext, userIdentifier)) {
+            response.put("message", "Only the attendee or an admin can remove this waitlist entry");
+            return Response.status(Response.Status.FORBIDDEN).entity(response).build();
+        }
+        if (!this.rsvpService.leaveWaitlist(eventId, userIdentifier)) {
+            response.put("message", "User is not on the waitlist for this event");
+            return Response.status(Response.Status.NOT_FOUND).entity(response).build();
+        }
+        response.put("message", "Removed from the waitlist");
+        return Response.ok(response).build();
+    }
+
+    @DELETE
+    @Path("/event/{eventId}/user/{userIdentifier}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response cancel(@PathParam("eventId") Integer eventId,
+                           @PathParam("userIdentifier") String userIdentifier,
+                           @Context ContainerRequestContext requestContext) {
+        Map<String, String> response = new HashMap<>();
+        if (!this.actsFor(requestContext, userIdentifier)) {
+            response.put("message", "Only the attendee or an admin can cancel this registration");
+            return Response.status(Response.Status.FORBIDDEN).entity(response).build();
+        }
+        if (!this.rsvpService.cancelRSVP(eventId, userIdentifier)) {
+            response.put("message", "User is not registered for this event");
+            return Response.status(Response.Status.NOT_FOUND).entity(response).build();
+        }
+        response.put("message", "Registration cancelled");
+        return Response.ok(response).build();
+    }
+
+    @GET
+    @Path("/tickets/{ticketId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getTicket(@PathParam("ticketId") String ticketId) {
+        SignupTicket ticket = this.rsvpService.findSignupTicket(ticketId);
+        if (ticket == null) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Ticket not found or expired");
+            return Response.status(Response.Status.NOT_FOUND).entity(response).build();
+        }
+        return Response.ok(ticket).build();
+    }
+
+    @GET
+    @Path("/event/{eventId}/flash-mode")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getFlashMode(@PathParam("eventId") Integer eventId) {
+        return Response.ok(this.rsvpService.getFlashSignupStatus(eventId)).build();
+    }
+
+    @POST
+    @Path("/event/{eventId}/flash-mode")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response enableFlashMode(@PathParam("eventId") Integer eventId) {
+        FlashSignupStatus status = this.rsvpService.enableFlashSignup(eventId);
+        if (status == null) {
             Map<String, String> response = new HashMap<>();
-            response.put("message", "Failed to register for event: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(response).build();
+            response.put("message", "Event not found");
+            return Response.status(Response.Status.NOT_FOUND).entity(response).build();
         }
+        return Response.ok(status).build();
+    }
+
+    @DELETE
+    @Path("/event/{eventId}/flash-mode")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response disableFlashMode(@PathParam("eventId") Integer eventId) {
+        return Response.ok(this.rsvpService.disableFlashSignup(eventId)).build();
     }
 
     @GET
@@ -72,16 +195,7 @@ public class RSVPResource {
             return Response.status(Response.Status.NOT_FOUND).entity(response).build();
         }
 
-        int currentCount = this.rsvpService.getRSVPCount(eventId);
-        Map<String, Object> response = new HashMap<>();
-        response.put("eventId", eventId);
-        response.put("currentCount", currentCount);
-        response.put("maxCapacity", event.getMaxCapacity());
-        response.put("canRegister", event.getMaxCapacity() == null || currentCount < event.getMaxCapacity());
-        response.put("isFull", event.getMaxCapacity() != null && currentCount >= event.getMaxCapacity());
-        response.put("hasCapacityLimit", event.getMaxCapacity() != null && event.getMaxCapacity() > 0);
-        
-        return Response.ok(response).build();
+        return Response.ok(this.rsvpService.getEventRSVPStatus(event)).build();
     }
 
     @GET
@@ -116,13 +230,31 @@ public class RSVPResource {
     @Produces(MediaType.APPLICATION_JSON)
     public Response getEventRSVPs(@PathParam("eventId") Integer eventId,
                                  @QueryParam("page") @DefaultValue("1") int page,
-                                 @QueryParam("limit") @DefaultValue("20") int limit) {
+                                 @QueryParam("limit") @DefaultValue("20") int limit,
+                                 @QueryParam("cursor") String cursor) {
         if (!this.eventService.existsById(eventId)) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Event not found");
             return Response.status(Response.Status.NOT_FOUND).entity(response).build();
         }
 
+        if (cursor != null) {
+            Cursor position = Cursor.decode(cursor);
+            if (position == null && !cursor.trim().isEmpty()) {
+                Map<String, String> response = new HashMap<>();
+                response.put("message", "Invalid cursor");
+                return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
+            }
+
+            CursorPage<RSVP> rsvpPage = this.rsvpService.findRSVPsByEventIdPage(eventId, position, limit);
+            Map<String, Object> response = new HashMap<>();
+            response.put("rsvps", rsvpPage.getItems());
+            response.put("eventId", eventId);
+            response.put("limit", limit);
+            response.put("nextCursor", rsvpPage.getNextCursor());
+            return Response.ok(response).build();
+        }
+
         List<RSVP> rsvps;
         if (page > 0 && limit > 0) {
             int offset = (page - 1) * limit;
@@ -139,4 +271,54 @@ public class RSVPResource {
         
         return Response.ok(response).build();
     }
-}
\ No newline at end of file
+
+    private Response admissionResponse(RSVPAdmission admission) {
+        Map<String, Object> response = new HashMap<>();
+        switch (admission.getStatus()) {
+            case ADMITTED:
+                response.put("message", "Successfully registered for event");
+                response.put("rsvp", admission.getRsvp());
+                response.put("currentCount", admission.getCurrentCount());
+                return Response.status(Response.Status.CREATED).entity(response).build();
+            case EVENT_NOT_FOUND:
+                response.put("message", "Event not found");
+                return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
+            case ALREADY_REGISTERED:
+                response.put("message", "User is already registered for this event");
+                return Response.status(Response.Status.CONFLICT).entity(response).build();
+            case FULL:
+                response.put("message", "Event is full - maximum capacity reached");
+                response.put("currentCount", admission.getCurrentCount());
+                response.put("maxCapacity", admission.getMaxCapacity());
+                return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
+            default:
+                response.put("message", "Failed to register for event");
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(response).build();
+        }
+    }
+
+    // AuthFilter has already authenticated the caller of these endpoints
+    private boolean actsFor(ContainerRequestContext requestContext, String userIdentifier) {
+        User currentUser = (User) requestContext.getProperty("currentUser");
+        if (currentUser == null) {
+            return false;
+        }
+        return "admin".equals(currentUser.getUserType()) || userIdentifier.equalsIgnoreCase(currentUser.getEmail());
+    }
+
+    private Response ticketResponse(SignupTicket ticket) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("ticket", ticket);
+        switch (ticket.getStatus()) {
+            case QUEUED:
+                response.put("message", "Registration accepted - poll the ticket for confirmation");
+                return Response.status(Response.Status.ACCEPTED).entity(response).build();
+            case ALREADY_REGISTERED:
+                response.put("message", "User is already registered for this event");
+                return Response.status(Response.Status.CONFLICT).entity(response).build();
+            default:
+                response.put("message", "Event is full - maximum capacity reached");
+                return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
+        }
+    }
+}
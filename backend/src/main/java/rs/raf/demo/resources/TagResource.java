@@ -65,8 +65,8 @@ public class TagResource {
         try {
             int offset = (page - 1) * limit;
             List<Event> events = this.eventService.findEventsByTagPaginated(tagId, offset, limit);
-            // Populate events with their tags
-            events = this.eventService.populateEventsWithTags(events);
+            // Populate events with their authors, categories and tags
+            events = this.eventService.populateEventsWithCompleteData(events);
             
             Map<String, Object> response = new HashMap<>();
             response.put("events", events);
@@ -0,0 +1,352 @@
+package rs.raf.demo.search;
+
+import rs.raf.demo.config.DatabaseConfig;
+import rs.raf.demo.entities.Event;
+import rs.raf.demo.entities.Tag;
+import rs.raf.demo.repositories.event.EventRepository;
+import rs.raf.demo.repositories.tag.TagRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// BM25 ranked inverted index over title, description, location and tag names
+public class EventSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final double TITLE_WEIGHT = 3.0;
+    private static final double TAG_WEIGHT = 2.0;
+    private static final double LOCATION_WEIGHT = 1.5;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    // The last query token is treated as a prefix while the user is still typing it
+    private static final double PREFIX_MATCH_WEIGHT = 0.7;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int TAG_LOAD_BATCH = 500;
+
+    @Inject
+    private EventRepository eventRepository;
+
+    @Inject
+    private TagRepository tagRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private TreeMap<String, Map<Integer, Double>> postings = new TreeMap<>();
+    private Map<Integer, Map<String, Double>> documents = new HashMap<>();
+    private Map<Integer, Double> documentLengths = new HashMap<>();
+    private double totalLength;
+
+    private volatile boolean ready;
+    private volatile boolean building;
+    private final Set<Integer> touchedDuringBuild = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService rebuilder;
+
+    @PostConstruct
+    public void start() {
+        if (!DatabaseConfig.getBoolean("search.index.enabled", true)) {
+            return;
+        }
+
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Periodic rebuilds pick up rows changed outside the application
+        long rebuildIntervalMs = DatabaseConfig.getLong("search.index.rebuildIntervalMs", 600000);
+        this.rebuilder.scheduleWithFixedDelay(this::rebuild, 0, rebuildIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.rebuilder != null) {
+            this.rebuilder.shutdownNow();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getIndexedEvents() {
+        this.lock.readLock().lock();
+        try {
+            return this.documents.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public void index(Event event, List<Tag> tags) {
+        if (event == null || event.getId() == null) {
+            return;
+        }
+        if (this.building) {
+            this.touchedDuringBuild.add(event.getId());
+        }
+
+        Map<String, Double> terms = new HashMap<>();
+        double length = this.analyze(event, tags, terms);
+
+        this.lock.writeLock().lock();
+        try {
+            this.removeDocument(event.getId());
+            this.addDocument(event.getId(), terms, length, this.postings, this.documents, this.documentLengths);
+            this.totalLength += length;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer eventId) {
+        if (eventId == null) {
+            return;
+        }
+        if (this.building) {
+            this.touchedDuringBuild.add(eventId);
+        }
+
+        this.lock.writeLock().lock();
+        try {
+            this.removeDocument(eventId);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    // Returns null until the first build has finished so callers can fall back to SQL
+    public SearchResult search(String query, int offset, int limit) {
+        if (!this.ready) {
+            return null;
+        }
+
+        List<String> tokens = SearchTokenizer.tokenizeQuery(query);
+        if (tokens.isEmpty()) {
+            return new SearchResult(new ArrayList<>(), 0);
+        }
+
+        Map<Integer, Double> scores;
+        this.lock.readLock().lock();
+        try {
+            scores = this.score(tokens);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+
+        return new SearchResult(this.topRanked(scores, Math.max(0, offset), limit), scores.size());
+    }
+
+    private Map<Integer, Double> score(List<String> tokens) {
+        int documentCount = this.documents.size();
+        if (documentCount == 0) {
+            return Collections.emptyMap();
+        }
+        double averageLength = this.totalLength / documentCount;
+
+        Map<Integer, Double> scores = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            Map<Integer, Double> tokenScores = new HashMap<>();
+
+            NavigableMap<String, Map<Integer, Double>> matches = i == tokens.size() - 1
+                    ? this.postings.subMap(token, true, token + Character.MAX_VALUE, false)
+                    : this.postings.subMap(token, true, token, true);
+
+            int expansions = 0;
+            for (Map.Entry<String, Map<Integer, Double>> term : matches.entrySet()) {
+                if (expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                Map<Integer, Double> termPostings = term.getValue();
+                double idf = Math.log(1 + (documentCount - termPostings.size() + 0.5) / (termPostings.size() + 0.5));
+                double matchWeight = term.getKey().equals(token) ? 1.0 : PREFIX_MATCH_WEIGHT;
+
+                for (Map.Entry<Integer, Double> posting : termPostings.entrySet()) {
+                    double frequency = posting.getValue();
+                    double lengthRatio = this.documentLengths.get(posting.getKey()) / averageLength;
+                    double termScore = matchWeight * idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * lengthRatio));
+                    // Several expansions of one prefix should not outweigh a single exact hit
+                    tokenScores.merge(posting.getKey(), termScore, Math::max);
+                }
+            }
+
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                Map<Integer, Double> combined = new HashMap<>();
+                for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                    Double tokenScore = tokenScores.get(entry.getKey());
+                    if (tokenScore != null) {
+                        combined.put(entry.getKey(), entry.getValue() + tokenScore);
+                    }
+                }
+                scores = combined;
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        return scores;
+    }
+
+    private List<Integer> topRanked(Map<Integer, Double> scores, int offset, int limit) {
+        Comparator<Map.Entry<Integer, Double>> ranking = Map.Entry.<Integer, Double>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey());
+
+        List<Map.Entry<Integer, Double>> ranked;
+        if (limit <= 0) {
+            ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(ranking.reversed());
+        } else {
+            // Only the first offset + limit hits are needed, keep them in a bounded min-heap
+            int wanted = offset + limit;
+            PriorityQueue<Map.Entry<Integer, Double>> heap = new PriorityQueue<>(ranking);
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                heap.offer(entry);
+                if (heap.size() > wanted) {
+                    heap.poll();
+                }
+            }
+            ranked = new ArrayList<>(heap);
+            ranked.sort(ranking.reversed());
+        }
+
+        List<Integer> eventIds = new ArrayList<>();
+        for (int i = offset; i < ranked.size(); i++) {
+            eventIds.add(ranked.get(i).getKey());
+        }
+        return eventIds;
+    }
+
+    private void rebuild() {
+        this.building = true;
+        this.touchedDuringBuild.clear();
+        try {
+            List<Event> events = this.eventRepository.allEvents();
+            Map<Integer, List<Tag>> tags = this.loadTags(events);
+
+            TreeMap<String, Map<Integer, Double>> newPostings = new TreeMap<>();
+            Map<Integer, Map<String, Double>> newDocuments = new HashMap<>();
+            Map<Integer, Double> newDocumentLengths = new HashMap<>();
+            double newTotalLength = 0;
+            for (Event event : events) {
+                Map<String, Double> terms = new HashMap<>();
+                double length = this.analyze(event, tags.get(event.getId()), terms);
+                this.addDocument(event.getId(), terms, length, newPostings, newDocuments, newDocumentLengths);
+                newTotalLength += length;
+            }
+
+            this.lock.writeLock().lock();
+            try {
+                this.postings = newPostings;
+                this.documents = newDocuments;
+                this.documentLengths = newDocumentLengths;
+                this.totalLength = newTotalLength;
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        } finally {
+            this.building = false;
+        }
+
+        // Writes that raced with the snapshot above may be missing from it, reload them
+        for (Integer eventId : new ArrayList<>(this.touchedDuringBuild)) {
+            this.touchedDuringBuild.remove(eventId);
+            Event event = this.eventRepository.findEvent(eventId);
+            if (event == null) {
+                this.remove(eventId);
+            } else {
+                this.index(event, this.tagRepository.findTagsByEventId(eventId));
+            }
+        }
+        this.ready = true;
+    }
+
+    private Map<Integer, List<Tag>> loadTags(List<Event> events) {
+        Map<Integer, List<Tag>> tags = new HashMap<>();
+        List<Integer> batch = new ArrayList<>();
+        for (Event event : events) {
+            batch.add(event.getId());
+            if (batch.size() == TAG_LOAD_BATCH) {
+                tags.putAll(this.tagRepository.findTagsByEventIds(batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            tags.putAll(this.tagRepository.findTagsByEventIds(batch));
+        }
+        return tags;
+    }
+
+    private double analyze(Event event, List<Tag> tags, Map<String, Double> terms) {
+        double length = this.addField(terms, event.getTitle(), TITLE_WEIGHT);
+        length += this.addField(terms, event.getDescription(), DESCRIPTION_WEIGHT);
+        length += this.addField(terms, event.getLocation(), LOCATION_WEIGHT);
+        if (tags != null) {
+            for (Tag tag : tags) {
+                length += this.addField(terms, tag.getName(), TAG_WEIGHT);
+            }
+        }
+        return length;
+    }
+
+    private double addField(Map<String, Double> terms, String text, double weight) {
+        List<String> tokens = SearchTokenizer.tokenize(text);
+        for (String token : tokens) {
+            terms.merge(token, weight, Double::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private void addDocument(Integer eventId, Map<String, Double> terms, double length,
+                             TreeMap<String, Map<Integer, Double>> targetPostings,
+                             Map<Integer, Map<String, Double>> targetDocuments,
+                             Map<Integer, Double> targetLengths) {
+        for (Map.Entry<String, Double> term : terms.entrySet()) {
+            targetPostings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(eventId, term.getValue());
+        }
+        targetDocuments.put(eventId, terms);
+        targetLengths.put(eventId, length);
+    }
+
+    private void removeDocument(Integer eventId) {
+        Map<String, Double> terms = this.documents.remove(eventId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Integer, Double> termPostings = this.postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(eventId);
+                if (termPostings.isEmpty()) {
+                    this.postings.remove(term);
+                }
+            }
+        }
+        Double length = this.documentLengths.remove(eventId);
+        if (length != null) {
+            this.totalLength -= length;
+        }
+    }
+}
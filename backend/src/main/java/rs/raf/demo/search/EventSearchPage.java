@@ -0,0 +1,24 @@
+package rs.raf.demo.search;
+
+import rs.raf.demo.entities.Event;
+
+import java.util.List;
+
+public class EventSearchPage {
+
+    private final List<Event> events;
+    private final int total;
+
+    public EventSearchPage(List<Event> events, int total) {
+        this.events = events;
+        this.total = total;
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,22 @@
+package rs.raf.demo.search;
+
+import java.util.List;
+
+public class SearchResult {
+
+    private final List<Integer> eventIds;
+    private final int total;
+
+    public SearchResult(List<Integer> eventIds, int total) {
+        this.eventIds = eventIds;
+        this.total = total;
+    }
+
+    public List<Integer> getEventIds() {
+        return eventIds;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
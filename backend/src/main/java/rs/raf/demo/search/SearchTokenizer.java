@@ -0,0 +1,62 @@
+package rs.raf.demo.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public final class SearchTokenizer {
+
+    private static final int MIN_TOKEN_LENGTH = 2;
+
+    private SearchTokenizer() {
+    }
+
+    // Lowercased with diacritics folded (c with caron -> c, d with stroke -> dj), so "dogadjaj" matches the accented spelling
+    public static List<String> tokenize(String text) {
+        return tokenize(text, false);
+    }
+
+    // The last query term is prefix matched, so a single character is still worth keeping there
+    public static List<String> tokenizeQuery(String text) {
+        return tokenize(text, true);
+    }
+
+    private static List<String> tokenize(String text, boolean keepShortLast) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return words;
+        }
+
+        String folded = Normalizer.normalize(text.toLowerCase(Locale.ROOT).replace("\u0111", "dj"), Normalizer.Form.NFD);
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c);
+            } else {
+                addWord(words, current);
+            }
+        }
+        addWord(words, current);
+
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            if (word.length() >= MIN_TOKEN_LENGTH || (keepShortLast && i == words.size() - 1)) {
+                tokens.add(word);
+            }
+        }
+        return tokens;
+    }
+
+    private static void addWord(List<String> words, StringBuilder current) {
+        if (current.length() > 0) {
+            words.add(current.toString());
+        }
+        current.setLength(0);
+    }
+}
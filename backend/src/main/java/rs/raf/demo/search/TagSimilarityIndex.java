@@ -0,0 +1,198 @@
+package rs.raf.demo.search;
+
+import rs.raf.demo.entities.EventTag;
+import rs.raf.demo.repositories.eventTag.EventTagRepository;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Event <-> tag adjacency as sorted int arrays; similar events are ranked by Jaccard overlap of their tags
+public class TagSimilarityIndex {
+
+    private static final int[] NO_IDS = new int[0];
+
+    @Inject
+    private EventTagRepository eventTagRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, int[]> tagsByEvent = new HashMap<>();
+    private final Map<Integer, int[]> eventsByTag = new HashMap<>();
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void start() {
+        Map<Integer, List<Integer>> tagLists = new HashMap<>();
+        for (EventTag eventTag : this.eventTagRepository.allEventTags()) {
+            tagLists.computeIfAbsent(eventTag.getEventId(), key -> new ArrayList<>()).add(eventTag.getTagId());
+        }
+
+        this.lock.writeLock().lock();
+        try {
+            for (Map.Entry<Integer, List<Integer>> entry : tagLists.entrySet()) {
+                this.replaceTags(entry.getKey(), this.sortedIds(entry.getValue()));
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        this.ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void setTags(Integer eventId, Collection<Integer> tagIds) {
+        int[] tags = this.sortedIds(tagIds);
+        this.lock.writeLock().lock();
+        try {
+            this.replaceTags(eventId, tags);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void removeTag(Integer eventId, Integer tagId) {
+        this.lock.writeLock().lock();
+        try {
+            int[] tags = this.tagsByEvent.get(eventId);
+            if (tags != null && Arrays.binarySearch(tags, tagId) >= 0) {
+                this.replaceTags(eventId, without(tags, tagId));
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void removeEvent(Integer eventId) {
+        this.setTags(eventId, new ArrayList<>());
+    }
+
+    public List<Integer> similar(Integer eventId, int limit) {
+        List<Integer> similarIds = new ArrayList<>();
+        if (limit <= 0) {
+            return similarIds;
+        }
+
+        Map<Integer, Integer> sharedTags = new HashMap<>();
+        int[] tags;
+        Map<Integer, Integer> candidateSizes = new HashMap<>();
+        this.lock.readLock().lock();
+        try {
+            tags = this.tagsByEvent.getOrDefault(eventId, NO_IDS);
+            for (int tagId : tags) {
+                for (int candidate : this.eventsByTag.getOrDefault(tagId, NO_IDS)) {
+                    if (candidate != eventId) {
+                        sharedTags.merge(candidate, 1, Integer::sum);
+                    }
+                }
+            }
+            for (Integer candidate : sharedTags.keySet()) {
+                candidateSizes.put(candidate, this.tagsByEvent.get(candidate).length);
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+
+        // Min-heap of the best `limit` candidates, so the weakest one is dropped first
+        PriorityQueue<Candidate> heap = new PriorityQueue<>();
+        for (Map.Entry<Integer, Integer> entry : sharedTags.entrySet()) {
+            int shared = entry.getValue();
+            double jaccard = (double) shared / (tags.length + candidateSizes.get(entry.getKey()) - shared);
+            heap.offer(new Candidate(entry.getKey(), jaccard, shared));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        while (!heap.isEmpty()) {
+            similarIds.add(heap.poll().eventId);
+        }
+        Collections.reverse(similarIds);
+        return similarIds;
+    }
+
+    private void replaceTags(Integer eventId, int[] tags) {
+        int[] previous = this.tagsByEvent.getOrDefault(eventId, NO_IDS);
+        for (int tagId : previous) {
+            if (Arrays.binarySearch(tags, tagId) < 0) {
+                int[] remaining = without(this.eventsByTag.getOrDefault(tagId, NO_IDS), eventId);
+                if (remaining.length == 0) {
+                    this.eventsByTag.remove(tagId);
+                } else {
+                    this.eventsByTag.put(tagId, remaining);
+                }
+            }
+        }
+        for (int tagId : tags) {
+            if (Arrays.binarySearch(previous, tagId) < 0) {
+                this.eventsByTag.put(tagId, with(this.eventsByTag.getOrDefault(tagId, NO_IDS), eventId));
+            }
+        }
+
+        if (tags.length == 0) {
+            this.tagsByEvent.remove(eventId);
+        } else {
+            this.tagsByEvent.put(eventId, tags);
+        }
+    }
+
+    private int[] sortedIds(Collection<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+    }
+
+    private static int[] with(int[] ids, int id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return ids;
+        }
+        int insertAt = -position - 1;
+        int[] result = new int[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, insertAt);
+        result[insertAt] = id;
+        System.arraycopy(ids, insertAt, result, insertAt + 1, ids.length - insertAt);
+        return result;
+    }
+
+    private static int[] without(int[] ids, int id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return ids;
+        }
+        int[] result = new int[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        System.arraycopy(ids, position + 1, result, position, ids.length - position - 1);
+        return result;
+    }
+
+    // Ordered from weakest to strongest: Jaccard first, then raw overlap, then the newer event wins
+    private static final class Candidate implements Comparable<Candidate> {
+        private final int eventId;
+        private final double jaccard;
+        private final int shared;
+
+        private Candidate(int eventId, double jaccard, int shared) {
+            this.eventId = eventId;
+            this.jaccard = jaccard;
+            this.shared = shared;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int byJaccard = Double.compare(this.jaccard, other.jaccard);
+            if (byJaccard != 0) {
+                return byJaccard;
+            }
+            int byShared = Integer.compare(this.shared, other.shared);
+            return byShared != 0 ? byShared : Integer.compare(this.eventId, other.eventId);
+        }
+    }
+}
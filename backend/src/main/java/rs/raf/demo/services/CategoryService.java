@@ -4,6 +4,7 @@ import rs.raf.demo.entities.Category;
 import rs.raf.demo.repositories.category.CategoryRepository;
 
 import javax.inject.Inject;
+import java.util.Collection;
 import java.util.List;
 
 public class CategoryService {
@@ -27,6 +28,10 @@ public class CategoryService {
         return this.categoryRepository.findCategory(id);
     }
 
+    public List<Category> findCategoriesByIds(Collection<Integer> ids) {
+        return this.categoryRepository.findCategoriesByIds(ids);
+    }
+
     public Category updateCategory(Category category) {
         return this.categoryRepository.updateCategory(category);
     }
@@ -1,6 +1,14 @@
 package rs.raf.demo.services;
 
+import rs.raf.demo.counters.ReactionCounter;
+import rs.raf.demo.counters.ReactionTarget;
+import rs.raf.demo.counters.VisitorReactions;
 import rs.raf.demo.entities.Comment;
+import rs.raf.demo.entities.ReactionCounts;
+import rs.raf.demo.entities.ReactionToggle;
+import rs.raf.demo.pagination.Cursor;
+import rs.raf.demo.pagination.CursorPage;
+import rs.raf.demo.repositories.UnitOfWork;
 import rs.raf.demo.repositories.comment.CommentRepository;
 
 import javax.inject.Inject;
@@ -16,6 +24,12 @@ public class CommentService {
     @Inject
     private CommentRepository commentRepository;
 
+    @Inject
+    private ReactionCounter reactionCounter;
+
+    @Inject
+    private VisitorReactions visitorReactions;
+
     public Comment addComment(Comment comment) {
         if (comment.getCreatedAt() == null) {
             comment.setCreatedAt(LocalDateTime.now());
@@ -36,7 +50,7 @@ public class CommentService {
     }
 
     public Comment findComment(Integer id) {
-        return this.commentRepository.findComment(id);
+        return this.withBufferedReactions(this.commentRepository.findComment(id));
     }
 
     public Comment updateComment(Comment comment) {
@@ -44,7 +58,14 @@ public class CommentService {
     }
 
     public void deleteComment(Integer id) {
-        this.commentRepository.deleteComment(id);
+        UnitOfWork.run(() -> {
+            this.commentRepository.deleteComment(id);
+            this.visitorReactions.deleteCommentMarks(id);
+            UnitOfWork.afterCommit(() -> {
+                this.reactionCounter.discard(ReactionTarget.COMMENT, id);
+                this.visitorReactions.forgetComment(id);
+            });
+        });
     }
 
     public boolean existsById(Integer id) {
@@ -52,26 +73,76 @@ public class CommentService {
     }
 
     public List<Comment> findCommentsByEventId(Integer eventId) {
-        return this.commentRepository.findCommentsByEventId(eventId);
+        return this.withBufferedReactions(this.commentRepository.findCommentsByEventId(eventId));
     }
 
     public List<Comment> findCommentsByEventIdPaginated(Integer eventId, int offset, int limit) {
-        return this.commentRepository.findCommentsByEventIdPaginated(eventId, offset, limit);
+        return this.withBufferedReactions(this.commentRepository.findCommentsByEventIdPaginated(eventId, offset, limit));
+    }
+
+    public CursorPage<Comment> findCommentsByEventIdPage(Integer eventId, Cursor cursor, int limit) {
+        int pageSize = Math.max(1, limit);
+        List<Comment> rows = this.withBufferedReactions(this.commentRepository.findCommentsByEventIdAfter(eventId, cursor, pageSize + 1));
+        return CursorPage.of(rows, pageSize, comment -> new Cursor(comment.getCreatedAt(), comment.getId()));
     }
 
     public void incrementLikes(Integer commentId) {
-        this.commentRepository.incrementLikes(commentId);
+        this.reactionCounter.apply(ReactionTarget.COMMENT, commentId, 1, 0);
     }
 
     public void decrementLikes(Integer commentId) {
-        this.commentRepository.decrementLikes(commentId);
+        this.reactionCounter.apply(ReactionTarget.COMMENT, commentId, -1, 0);
     }
 
     public void incrementDislikes(Integer commentId) {
-        this.commentRepository.incrementDislikes(commentId);
+        this.reactionCounter.apply(ReactionTarget.COMMENT, commentId, 0, 1);
     }
 
     public void decrementDislikes(Integer commentId) {
-        this.commentRepository.decrementDislikes(commentId);
+        this.reactionCounter.apply(ReactionTarget.COMMENT, commentId, 0, -1);
+    }
+
+    // Null when the comment does not exist. Loading its counts into the buffer is the existence check, so a
+    // comment that is already buffered is toggled without touching MySQL
+    public ReactionToggle toggleLike(Integer commentId, String visitorId) {
+        if (this.reactionCounter.getCounts(ReactionTarget.COMMENT, commentId) == null) {
+            return null;
+        }
+        return this.applyToggle(commentId, this.visitorReactions.like(visitorId, ReactionTarget.COMMENT, commentId));
+    }
+
+    public ReactionToggle toggleDislike(Integer commentId, String visitorId) {
+        if (this.reactionCounter.getCounts(ReactionTarget.COMMENT, commentId) == null) {
+            return null;
+        }
+        return this.applyToggle(commentId, this.visitorReactions.dislike(visitorId, ReactionTarget.COMMENT, commentId));
+    }
+
+    private ReactionToggle applyToggle(Integer commentId, ReactionToggle toggle) {
+        ReactionCounts counts = this.reactionCounter.apply(ReactionTarget.COMMENT, commentId, toggle.getLikeDelta(), toggle.getDislikeDelta());
+        return counts == null ? null : toggle.withCounts(counts);
+    }
+
+    public ReactionCounts getReactionCounts(Integer commentId) {
+        return this.reactionCounter.getCounts(ReactionTarget.COMMENT, commentId);
+    }
+
+    // Buffered reactions are newer than the stored columns until the next flush
+    private List<Comment> withBufferedReactions(List<Comment> comments) {
+        for (Comment comment : comments) {
+            this.withBufferedReactions(comment);
+        }
+        return comments;
+    }
+
+    private Comment withBufferedReactions(Comment comment) {
+        if (comment != null) {
+            ReactionCounts counts = this.reactionCounter.peek(ReactionTarget.COMMENT, comment.getId());
+            if (counts != null) {
+                comment.setLikeCount(counts.getLikeCount());
+                comment.setDislikeCount(counts.getDislikeCount());
+            }
+        }
+        return comment;
     }
 }
\ No newline at end of file
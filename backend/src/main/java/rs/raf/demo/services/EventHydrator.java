@@ -0,0 +1,108 @@
+package rs.raf.demo.services;
+
+import rs.raf.demo.counters.ReactionCounter;
+import rs.raf.demo.counters.ReactionTarget;
+import rs.raf.demo.counters.ViewCounter;
+import rs.raf.demo.entities.Category;
+import rs.raf.demo.entities.Event;
+import rs.raf.demo.entities.ReactionCounts;
+import rs.raf.demo.entities.Tag;
+import rs.raf.demo.entities.User;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Fills authors, categories and tags for a whole page with one query per relation
+public class EventHydrator {
+
+    @Inject
+    private CategoryService categoryService;
+
+    @Inject
+    private UserService userService;
+
+    @Inject
+    private TagService tagService;
+
+    @Inject
+    private ViewCounter viewCounter;
+
+    @Inject
+    private ReactionCounter reactionCounter;
+
+    public List<Event> hydrate(List<Event> events) {
+        if (events == null || events.isEmpty()) {
+            return events;
+        }
+
+        Set<Integer> categoryIds = new LinkedHashSet<>();
+        Set<Integer> authorIds = new LinkedHashSet<>();
+        for (Event event : events) {
+            if (event.getCategoryId() != null) {
+                categoryIds.add(event.getCategoryId());
+            }
+            if (event.getAuthorId() != null) {
+                authorIds.add(event.getAuthorId());
+            }
+        }
+
+        Map<Integer, Category> categories = new HashMap<>();
+        for (Category category : this.categoryService.findCategoriesByIds(categoryIds)) {
+            categories.put(category.getId(), category);
+        }
+
+        Map<Integer, User> authors = new HashMap<>();
+        for (User author : this.userService.findUsersByIds(authorIds)) {
+            authors.put(author.getId(), author);
+        }
+
+        Map<Integer, List<Tag>> tags = this.tagService.getTagsForEvents(this.eventIds(events));
+
+        for (Event event : events) {
+            event.setCategory(categories.get(event.getCategoryId()));
+            event.setAuthor(authors.get(event.getAuthorId()));
+            event.setTags(tags.getOrDefault(event.getId(), new ArrayList<>()));
+            this.applyBufferedCounters(event);
+        }
+        return events;
+    }
+
+    public List<Event> hydrateTags(List<Event> events) {
+        if (events == null || events.isEmpty()) {
+            return events;
+        }
+
+        Map<Integer, List<Tag>> tags = this.tagService.getTagsForEvents(this.eventIds(events));
+        for (Event event : events) {
+            event.setTags(tags.getOrDefault(event.getId(), new ArrayList<>()));
+            this.applyBufferedCounters(event);
+        }
+        return events;
+    }
+
+    // Views and reactions not yet flushed to MySQL are added on top of the stored columns
+    private void applyBufferedCounters(Event event) {
+        long pendingViews = this.viewCounter.getPendingViews(event.getId());
+        if (pendingViews > 0) {
+            event.setViews((int) (event.getViews() + pendingViews));
+        }
+        ReactionCounts counts = this.reactionCounter.peek(ReactionTarget.EVENT, event.getId());
+        if (counts != null) {
+            event.setLikeCount(counts.getLikeCount());
+            event.setDislikeCount(counts.getDislikeCount());
+        }
+    }
+
+    private Set<Integer> eventIds(List<Event> events) {
+        Set<Integer> eventIds = new LinkedHashSet<>();
+        for (Event event : events) {
+            eventIds.add(event.getId());
+        }
+        return eventIds;
+    }
+}
@@ -0,0 +1,177 @@
+package rs.raf.demo.services;
+
+import rs.raf.demo.config.DatabaseConfig;
+import rs.raf.demo.entities.Comment;
+import rs.raf.demo.entities.Event;
+import rs.raf.demo.entities.EventPage;
+import rs.raf.demo.pagination.CursorPage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Builds the event detail page in one request: the event is checked once, then the sections load side by side.
+// Sections run on a small bounded pool and share one connection budget across all page loads, so a burst of
+// page views cannot take every pooled connection away from writes.
+public class EventPageService {
+
+    @Inject
+    private EventService eventService;
+
+    @Inject
+    private CommentService commentService;
+
+    @Inject
+    private RSVPService rsvpService;
+
+    private ThreadPoolExecutor executor;
+    private Semaphore connectionBudget;
+    private long timeoutMs;
+
+    @PostConstruct
+    public void start() {
+        int threads = Math.max(1, DatabaseConfig.getInt("events.page.threads", 8));
+        int queueSize = Math.max(1, DatabaseConfig.getInt("events.page.queueSize", 64));
+        int poolSize = Math.max(1, DatabaseConfig.getInt("db.pool.maxSize", 10));
+        this.connectionBudget = new Semaphore(Math.max(1, DatabaseConfig.getInt("events.page.maxConnections", poolSize / 2)), true);
+        this.timeoutMs = DatabaseConfig.getLong("events.page.timeoutMs", 3000);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        // When the queue is full a section is rejected and reported as failed, so the request thread never loads it itself
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "event-page-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
+
+    // Null when the event does not exist. recordView counts this load as the visitor's view of the event
+    public EventPage loadPage(Integer eventId, String visitorId, boolean recordView, int commentLimit, int similarLimit,
+                              int mostReactedLimit) {
+        Event event = this.eventService.findEvent(eventId);
+        if (event == null) {
+            return null;
+        }
+
+        EventPage page = new EventPage();
+        // A write, not a section: it runs on this thread so it is never dropped by the deadline and viewCounted is
+        // always the real outcome
+        if (recordView && visitorId != null) {
+            page.setViewCounted(this.eventService.recordView(eventId, visitorId));
+        }
+
+        // Set before any section is submitted, so waiting for budget counts against the same timeout
+        long deadline = System.currentTimeMillis() + this.timeoutMs;
+        List<Section<?>> sections = new ArrayList<>();
+        sections.add(this.section("event", deadline, () -> this.eventService.populateEventWithCompleteData(event), page::setEvent));
+        sections.add(this.section("comments", deadline, () -> this.commentService.findCommentsByEventIdPage(eventId, null, commentLimit),
+                (CursorPage<Comment> comments) -> {
+                    page.setComments(comments.getItems());
+                    page.setNextCommentCursor(comments.getNextCursor());
+                }));
+        sections.add(this.section("rsvpStatus", deadline, () -> this.rsvpService.getEventRSVPStatus(event), page::setRsvpStatus));
+        sections.add(this.section("similarEvents", deadline, () -> this.eventService.populateEventsWithCompleteData(
+                this.eventService.findSimilarEvents(eventId, similarLimit)), page::setSimilarEvents));
+        sections.add(this.section("mostReactedEvents", deadline, () -> this.eventService.mostReactedFeed(mostReactedLimit),
+                page::setMostReactedEvents));
+
+        // Results are copied into the page on this thread only, so a section that finishes late cannot change it
+        List<String> failedSections = new ArrayList<>();
+        for (Section<?> section : sections) {
+            if (!section.applyBefore(deadline)) {
+                failedSections.add(section.name);
+            }
+        }
+
+        // Needs the comment ids, and is answered from memory once the visitor's marks are loaded
+        if (page.getComments() != null) {
+            List<Integer> commentIds = new ArrayList<>();
+            for (Comment comment : page.getComments()) {
+                commentIds.add(comment.getId());
+            }
+            page.setMyReactions(this.eventService.getReactionFlags(eventId, visitorId, commentIds));
+        }
+        page.setFailedSections(failedSections);
+        return page;
+    }
+
+    private <T> Section<T> section(String name, long deadline, Supplier<T> loader, Consumer<T> target) {
+        Supplier<T> budgetedLoader = () -> {
+            try {
+                if (!this.connectionBudget.tryAcquire(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("No connection budget left for the event page");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            try {
+                return loader.get();
+            } finally {
+                this.connectionBudget.release();
+            }
+        };
+
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(budgetedLoader, this.executor);
+        } catch (RejectedExecutionException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return new Section<>(name, future, target);
+    }
+
+    private static final class Section<T> {
+        private final String name;
+        private final CompletableFuture<T> future;
+        private final Consumer<T> target;
+
+        private Section(String name, CompletableFuture<T> future, Consumer<T> target) {
+            this.name = name;
+            this.future = future;
+            this.target = target;
+        }
+
+        private boolean applyBefore(long deadline) {
+            try {
+                this.target.accept(this.future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS));
+                return true;
+            } catch (TimeoutException e) {
+                this.future.cancel(false);
+                return false;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RejectedExecutionException) {
+                    System.err.println("Event page section " + this.name + " skipped: the page loader queue is full");
+                } else {
+                    e.getCause().printStackTrace();
+                }
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
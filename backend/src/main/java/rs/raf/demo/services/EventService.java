@@ -1,13 +1,36 @@
 package rs.raf.demo.services;
 
-import rs.raf.demo.entities.Category;
+import rs.raf.demo.admission.WaitlistPromoter;
+import rs.raf.demo.cache.ExpiringCache;
+import rs.raf.demo.cache.StaleWhileRevalidateCache;
+import rs.raf.demo.config.DatabaseConfig;
+import rs.raf.demo.counters.EventLeaderboards;
+import rs.raf.demo.counters.RSVPCounts;
+import rs.raf.demo.counters.ReactionCounter;
+import rs.raf.demo.counters.ReactionTarget;
+import rs.raf.demo.counters.ViewCounter;
+import rs.raf.demo.counters.VisitorReactions;
+import rs.raf.demo.counters.VisitorSketches;
 import rs.raf.demo.entities.Event;
+import rs.raf.demo.entities.EventVisitors;
+import rs.raf.demo.entities.ReactionCounts;
+import rs.raf.demo.entities.ReactionToggle;
 import rs.raf.demo.entities.Tag;
-import rs.raf.demo.entities.User;
+import rs.raf.demo.entities.VisitorReactionFlags;
+import rs.raf.demo.pagination.Cursor;
+import rs.raf.demo.pagination.CursorPage;
+import rs.raf.demo.repositories.comment.CommentRepository;
 import rs.raf.demo.repositories.event.EventRepository;
+import rs.raf.demo.repositories.UnitOfWork;
+import rs.raf.demo.search.EventSearchIndex;
+import rs.raf.demo.search.EventSearchPage;
+import rs.raf.demo.search.TagSimilarityIndex;
+import rs.raf.demo.search.SearchResult;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 
 public class EventService {
@@ -18,6 +41,9 @@ public class EventService {
 
     @Inject
     private EventRepository eventRepository;
+
+    @Inject
+    private CommentRepository commentRepository;
     
     @Inject
     private TagService tagService;
@@ -28,6 +54,49 @@ public class EventService {
     @Inject
     private UserService userService;
 
+    @Inject
+    private EventHydrator eventHydrator;
+
+    @Inject
+    private EventSearchIndex searchIndex;
+
+    @Inject
+    private ViewCounter viewCounter;
+
+    @Inject
+    private VisitorSketches visitorSketches;
+
+    @Inject
+    private VisitorReactions visitorReactions;
+
+    @Inject
+    private ReactionCounter reactionCounter;
+
+    @Inject
+    private EventLeaderboards leaderboards;
+
+    @Inject
+    private TagSimilarityIndex similarityIndex;
+
+    @Inject
+    private RSVPCounts rsvpCounts;
+
+    @Inject
+    private WaitlistPromoter waitlistPromoter;
+
+    // Page totals only need to be roughly fresh; writes below clear them straight away
+    private final ExpiringCache<String, Integer> totalsCache = new ExpiringCache<>(
+            DatabaseConfig.getLong("cache.totals.ttlMs", 30000), 1000);
+
+    // Home page feeds, stored fully hydrated
+    private final StaleWhileRevalidateCache<String, List<Event>> feedCache = new StaleWhileRevalidateCache<>("event-feeds",
+            DatabaseConfig.getLong("cache.feeds.freshMs", 10000), DatabaseConfig.getLong("cache.feeds.maxStaleMs", 120000), 64);
+
+    @PreDestroy
+    public void shutdown() {
+        this.feedCache.shutdown();
+    }
+
     public Event addEvent(Event event) {
         if (event.getCreatedAt() == null) {
             event.setCreatedAt(LocalDateTime.now());
@@ -43,7 +112,13 @@ public class EventService {
             event.setDislikeCount(0);
         }
         
-        return this.eventRepository.addEvent(event);
+        Event savedEvent = this.eventRepository.addEvent(event);
+        UnitOfWork.afterCommit(() -> {
+            this.invalidateListings();
+            this.searchIndex.index(savedEvent, Collections.emptyList());
+            this.leaderboards.eventAdded(savedEvent);
+        });
+        return savedEvent;
     }
 
     public List<Event> allEvents() {
@@ -55,11 +130,35 @@ public class EventService {
     }
 
     public Event updateEvent(Event event) {
-        return this.eventRepository.updateEvent(event);
+        Event updatedEvent = this.eventRepository.updateEvent(event);
+        UnitOfWork.afterCommit(() -> {
+            this.invalidateListings();
+            this.searchIndex.index(updatedEvent, this.tagService.getTagsForEvent(updatedEvent.getId()));
+            // A raised capacity frees seats for everyone waiting; the promoter fills them in batches
+            this.waitlistPromoter.signal(event.getId());
+        });
+        return updatedEvent;
     }
 
     public void deleteEvent(Integer id) {
-        this.eventRepository.deleteEvent(id);
+        UnitOfWork.run(() -> {
+            // visitor_reaction has no foreign key, so the marks on the event and its comments go explicitly
+            List<Integer> commentIds = this.commentRepository.findCommentIdsByEventId(id);
+            this.visitorReactions.deleteEventMarks(id, commentIds);
+            this.eventRepository.deleteEvent(id);
+            UnitOfWork.afterCommit(() -> {
+                this.visitorReactions.forgetEvent(id, commentIds);
+                this.invalidateListings();
+                this.searchIndex.remove(id);
+                this.reactionCounter.discard(ReactionTarget.EVENT, id);
+                for (Integer commentId : commentIds) {
+                    this.reactionCounter.discard(ReactionTarget.COMMENT, commentId);
+                }
+                this.leaderboards.eventRemoved(id);
+                this.similarityIndex.removeEvent(id);
+                this.rsvpCounts.invalidate(id);
+            });
+        });
     }
 
     public boolean existsById(Integer id) {
@@ -70,12 +169,28 @@ public class EventService {
         return this.eventRepository.allEventsPaginated(offset, limit);
     }
 
+    public CursorPage<Event> allEventsPage(Cursor cursor, int limit) {
+        int pageSize = Math.max(1, limit);
+        List<Event> rows = this.eventRepository.allEventsAfter(cursor, pageSize + 1);
+        return CursorPage.of(rows, pageSize, event -> new Cursor(event.getCreatedAt(), event.getId()));
+    }
+
     public List<Event> searchEventsByTitleOrDescription(String searchTerm) {
-        return this.eventRepository.searchEventsByTitleOrDescription(searchTerm);
+        SearchResult result = this.searchIndex.search(searchTerm, 0, 0);
+        if (result == null) {
+            return this.eventRepository.searchEventsByTitleOrDescription(searchTerm);
+        }
+        return this.eventRepository.findEventsByIds(result.getEventIds());
     }
 
-    public List<Event> searchEventsByTitleOrDescriptionPaginated(String searchTerm, int offset, int limit) {
-        return this.eventRepository.searchEventsByTitleOrDescriptionPaginated(searchTerm, offset, limit);
+    // The page and the total come from one scoring pass over the index
+    public EventSearchPage searchEventsByTitleOrDescriptionPaginated(String searchTerm, int offset, int limit) {
+        SearchResult result = this.searchIndex.search(searchTerm, offset, limit);
+        if (result == null) {
+            return new EventSearchPage(this.eventRepository.searchEventsByTitleOrDescriptionPaginated(searchTerm, offset, limit),
+                    this.totalsCache.get("search:" + searchTerm, key -> this.eventRepository.countSearch(searchTerm)));
+        }
+        return new EventSearchPage(this.eventRepository.findEventsByIds(result.getEventIds()), result.getTotal());
     }
 
     public List<Event> findEventsByCategory(Integer categoryId) {
@@ -103,7 +218,11 @@ public class EventService {
     }
 
     public List<Event> findMostVisitedEvents(int limit) {
-        return this.eventRepository.findMostVisitedEvents(limit);
+        List<Integer> ranked = this.leaderboards.isReady() ? this.leaderboards.mostVisited(limit) : Collections.emptyList();
+        if (ranked.isEmpty()) {
+            return this.eventRepository.findMostVisitedEvents(limit);
+        }
+        return this.eventRepository.findEventsByIds(ranked);
     }
 
     public List<Event> findMostVisitedEventsLast30Days(int limit) {
@@ -111,61 +230,160 @@ public class EventService {
     }
 
     public List<Event> findMostReactedEvents(int limit) {
-        return this.eventRepository.findMostReactedEvents(limit);
+        List<Integer> ranked = this.leaderboards.isReady() ? this.leaderboards.mostReacted(limit) : Collections.emptyList();
+        if (ranked.isEmpty()) {
+            return this.eventRepository.findMostReactedEvents(limit);
+        }
+        return this.eventRepository.findEventsByIds(ranked);
+    }
+
+    public List<Event> latestFeed(int limit) {
+        return this.feedCache.get("latest:" + limit, () -> this.hydratedFeed(this.findLatestEvents(limit)));
+    }
+
+    public List<Event> mostVisitedFeed(int limit) {
+        return this.feedCache.get("most-visited:" + limit, () -> this.hydratedFeed(this.findMostVisitedEvents(limit)));
+    }
+
+    public List<Event> mostVisitedLast30DaysFeed(int limit) {
+        return this.feedCache.get("most-visited-30days:" + limit, () -> this.hydratedFeed(this.findMostVisitedEventsLast30Days(limit)));
+    }
+
+    public List<Event> mostReactedFeed(int limit) {
+        return this.feedCache.get("most-reacted:" + limit, () -> this.hydratedFeed(this.findMostReactedEvents(limit)));
+    }
+
+    // Cached lists are shared between requests, so hand them out read-only
+    private List<Event> hydratedFeed(List<Event> events) {
+        return Collections.unmodifiableList(this.populateEventsWithCompleteData(events));
+    }
+
+    private void invalidateListings() {
+        this.totalsCache.invalidateAll();
+        this.feedCache.invalidateAll();
     }
 
     public List<Event> findSimilarEvents(Integer eventId, int limit) {
-        return this.eventRepository.findSimilarEvents(eventId, limit);
+        if (!this.similarityIndex.isReady()) {
+            return this.eventRepository.findSimilarEvents(eventId, limit);
+        }
+        return this.eventRepository.findEventsByIds(this.similarityIndex.similar(eventId, limit));
     }
 
     public void incrementViews(Integer eventId) {
-        this.eventRepository.incrementViews(eventId);
+        this.viewCounter.record(eventId);
+        this.leaderboards.viewRecorded(eventId);
+    }
+
+    // Every visit goes into the visitor sketches, but only a visitor's first view is counted; returns whether it was
+    public boolean recordView(Integer eventId, String visitorId) {
+        this.visitorSketches.record(eventId, visitorId);
+        if (!this.visitorReactions.markViewed(visitorId, eventId)) {
+            return false;
+        }
+        this.incrementViews(eventId);
+        return true;
+    }
+
+    // Null when the event does not exist; the buffered counts double as the existence check
+    public ReactionToggle toggleLike(Integer eventId, String visitorId) {
+        if (this.reactionCounter.getCounts(ReactionTarget.EVENT, eventId) == null) {
+            return null;
+        }
+        return this.applyToggle(eventId, this.visitorReactions.like(visitorId, ReactionTarget.EVENT, eventId));
+    }
+
+    public ReactionToggle toggleDislike(Integer eventId, String visitorId) {
+        if (this.reactionCounter.getCounts(ReactionTarget.EVENT, eventId) == null) {
+            return null;
+        }
+        return this.applyToggle(eventId, this.visitorReactions.dislike(visitorId, ReactionTarget.EVENT, eventId));
+    }
+
+    private ReactionToggle applyToggle(Integer eventId, ReactionToggle toggle) {
+        ReactionCounts counts = this.reactionCounter.apply(ReactionTarget.EVENT, eventId, toggle.getLikeDelta(), toggle.getDislikeDelta());
+        if (counts == null) {
+            return null;
+        }
+        this.leaderboards.reactionsChanged(eventId, counts);
+        return toggle.withCounts(counts);
+    }
+
+    public VisitorReactionFlags getReactionFlags(Integer eventId, String visitorId, List<Integer> commentIds) {
+        return this.visitorReactions.flags(visitorId, eventId, commentIds);
+    }
+
+    public EventVisitors getVisitors(Integer eventId, int days) {
+        return this.visitorSketches.visitors(eventId, days);
     }
 
     public void incrementLikes(Integer eventId) {
-        this.eventRepository.incrementLikes(eventId);
+        this.applyReaction(eventId, 1, 0);
     }
 
     public void incrementDislikes(Integer eventId) {
-        this.eventRepository.incrementDislikes(eventId);
+        this.applyReaction(eventId, 0, 1);
     }
 
     public void decrementLikes(Integer eventId) {
-        this.eventRepository.decrementLikes(eventId);
+        this.applyReaction(eventId, -1, 0);
     }
 
     public void decrementDislikes(Integer eventId) {
-        this.eventRepository.decrementDislikes(eventId);
+        this.applyReaction(eventId, 0, -1);
+    }
+
+    private void applyReaction(Integer eventId, int likeDelta, int dislikeDelta) {
+        ReactionCounts counts = this.reactionCounter.apply(ReactionTarget.EVENT, eventId, likeDelta, dislikeDelta);
+        this.leaderboards.reactionsChanged(eventId, counts);
+    }
+
+    public ReactionCounts getReactionCounts(Integer eventId) {
+        return this.reactionCounter.getCounts(ReactionTarget.EVENT, eventId);
     }
 
     public int getCurrentRSVPCount(Integer eventId) {
-        return this.eventRepository.getCurrentRSVPCount(eventId);
+        return this.rsvpCounts.get(eventId);
     }
 
+    // Insert, tag creation, linking and the re-read share one connection and commit together
     public Event addEventWithTags(Event event, String tagsString) {
-        Event savedEvent = this.addEvent(event);
-        
-        if (tagsString != null && !tagsString.trim().isEmpty()) {
-            List<Tag> tags = this.tagService.findOrCreateTags(tagsString);
-            this.tagService.assignTagsToEvent(savedEvent.getId(), tags);
-        }
-        
-        return this.getEventWithTags(savedEvent.getId());
+        return UnitOfWork.run(() -> {
+            Event savedEvent = this.addEvent(event);
+
+            if (tagsString != null && !tagsString.trim().isEmpty()) {
+                List<Tag> tags = this.tagService.findOrCreateTags(tagsString);
+                this.tagService.assignTagsToEvent(savedEvent.getId(), tags);
+                UnitOfWork.afterCommit(() -> {
+                    this.invalidateListings();
+                    this.searchIndex.index(savedEvent, tags);
+                });
+            }
+
+            return this.getEventWithTags(savedEvent.getId());
+        });
     }
 
     public Event updateEventWithTags(Event event, String tagsString) {
-        Event updatedEvent = this.updateEvent(event);
-        
-        if (tagsString != null) {
-            if (tagsString.trim().isEmpty()) {
-                this.tagService.assignTagsToEvent(event.getId(), new java.util.ArrayList<>());
-            } else {
-                List<Tag> tags = this.tagService.findOrCreateTags(tagsString);
+        return UnitOfWork.run(() -> {
+            Event updatedEvent = this.updateEvent(event);
+
+            if (tagsString != null) {
+                List<Tag> tags;
+                if (tagsString.trim().isEmpty()) {
+                    tags = new java.util.ArrayList<>();
+                } else {
+                    tags = this.tagService.findOrCreateTags(tagsString);
+                }
                 this.tagService.assignTagsToEvent(event.getId(), tags);
+                UnitOfWork.afterCommit(() -> {
+                    this.invalidateListings();
+                    this.searchIndex.index(updatedEvent, tags);
+                });
             }
-        }
-        
-        return this.getEventWithTags(event.getId());
+
+            return this.getEventWithTags(event.getId());
+        });
     }
 
     public Event getEventWithTags(Integer eventId) {
@@ -178,40 +396,29 @@ public class EventService {
     }
 
     public int eventCount() {
-        return this.eventRepository.eventCount();
+        return this.totalsCache.get("all", key -> this.eventRepository.eventCount());
+    }
+
+    public int countEventsByCategory(Integer categoryId) {
+        return this.totalsCache.get("category:" + categoryId, key -> this.eventRepository.countByCategory(categoryId));
+    }
+
+    public int countEventsByTag(Integer tagId) {
+        return this.totalsCache.get("tag:" + tagId, key -> this.eventRepository.countByTag(tagId));
     }
 
     public List<Event> populateEventsWithTags(List<Event> events) {
-        for (Event event : events) {
-            List<Tag> tags = this.tagService.getTagsForEvent(event.getId());
-            event.setTags(tags);
-        }
-        return events;
+        return this.eventHydrator.hydrateTags(events);
     }
     
     public Event populateEventWithCompleteData(Event event) {
         if (event == null) return null;
         
-        if (event.getCategoryId() != null) {
-            Category category = this.categoryService.findCategory(event.getCategoryId());
-            event.setCategory(category);
-        }
-        
-        if (event.getAuthorId() != null) {
-            User author = this.userService.findUser(event.getAuthorId());
-            event.setAuthor(author);
-        }
-        
-        List<Tag> tags = this.tagService.getTagsForEvent(event.getId());
-        event.setTags(tags);
-        
+        this.eventHydrator.hydrate(Collections.singletonList(event));
         return event;
     }
     
     public List<Event> populateEventsWithCompleteData(List<Event> events) {
-        for (Event event : events) {
-            populateEventWithCompleteData(event);
-        }
-        return events;
+        return this.eventHydrator.hydrate(events);
     }
 }
\ No newline at end of file
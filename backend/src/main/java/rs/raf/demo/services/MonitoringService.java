@@ -0,0 +1,56 @@
+package rs.raf.demo.services;
+
+import rs.raf.demo.cache.ReferenceCacheStatistics;
+import rs.raf.demo.counters.ReactionCounter;
+import rs.raf.demo.counters.ReactionCounterStatistics;
+import rs.raf.demo.counters.ViewCounter;
+import rs.raf.demo.counters.ViewCounterStatistics;
+import rs.raf.demo.repositories.MySqlAbstractRepository;
+import rs.raf.demo.repositories.category.CachingCategoryRepository;
+import rs.raf.demo.repositories.pool.PoolStatistics;
+import rs.raf.demo.repositories.pool.StatementStatistics;
+import rs.raf.demo.repositories.tag.CachingTagRepository;
+import rs.raf.demo.repositories.user.CachingUserRepository;
+
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.List;
+
+public class MonitoringService {
+
+    @Inject
+    private ViewCounter viewCounter;
+
+    @Inject
+    private ReactionCounter reactionCounter;
+
+    @Inject
+    private CachingCategoryRepository categoryRepository;
+
+    @Inject
+    private CachingTagRepository tagRepository;
+
+    @Inject
+    private CachingUserRepository userRepository;
+
+    public PoolStatistics getPoolStatistics() {
+        return MySqlAbstractRepository.getConnectionPool().getStatistics();
+    }
+
+    public List<StatementStatistics> getStatementStatistics() {
+        return MySqlAbstractRepository.getConnectionPool().getStatementStatistics();
+    }
+
+    public ViewCounterStatistics getViewCounterStatistics() {
+        return this.viewCounter.getStatistics();
+    }
+
+    public ReactionCounterStatistics getReactionCounterStatistics() {
+        return this.reactionCounter.getStatistics();
+    }
+
+    public List<ReferenceCacheStatistics> getReferenceCacheStatistics() {
+        return Arrays.asList(this.categoryRepository.getCacheStatistics(), this.tagRepository.getCacheStatistics(),
+                this.userRepository.getCacheStatistics());
+    }
+}
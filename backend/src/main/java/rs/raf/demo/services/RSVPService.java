@@ -1,13 +1,25 @@
 package rs.raf.demo.services;
 
+import rs.raf.demo.admission.FlashSignupQueue;
+import rs.raf.demo.admission.FlashSignupStatus;
+import rs.raf.demo.admission.SignupTicket;
+import rs.raf.demo.admission.WaitlistPromoter;
+import rs.raf.demo.counters.RSVPCounts;
 import rs.raf.demo.entities.RSVP;
 import rs.raf.demo.entities.Event;
+import rs.raf.demo.entities.RSVPAdmission;
+import rs.raf.demo.entities.WaitlistEntry;
+import rs.raf.demo.pagination.Cursor;
+import rs.raf.demo.pagination.CursorPage;
 import rs.raf.demo.repositories.rsvp.RSVPRepository;
 import rs.raf.demo.repositories.event.EventRepository;
+import rs.raf.demo.repositories.waitlist.WaitlistRepository;
 
 import javax.inject.Inject;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class RSVPService {
 
@@ -21,12 +33,101 @@ public class RSVPService {
     @Inject
     private EventRepository eventRepository;
 
+    @Inject
+    private FlashSignupQueue flashSignupQueue;
+
+    @Inject
+    private RSVPCounts rsvpCounts;
+
+    @Inject
+    private WaitlistRepository waitlistRepository;
+
+    @Inject
+    private WaitlistPromoter waitlistPromoter;
+
     public RSVP addRSVP(RSVP rsvp) {
         if (rsvp.getRegistrationDate() == null) {
             rsvp.setRegistrationDate(LocalDateTime.now());
         }
         
-        return this.rsvpRepository.addRSVP(rsvp);
+        RSVP saved = this.rsvpRepository.addRSVP(rsvp);
+        this.rsvpCounts.invalidate(rsvp.getEventId());
+        return saved;
+    }
+
+    // Existence, duplicate and capacity checks all happen inside the admission transaction
+    public RSVPAdmission admitRSVP(RSVP rsvp) {
+        if (rsvp.getRegistrationDate() == null) {
+            rsvp.setRegistrationDate(LocalDateTime.now());
+        }
+
+        long countGeneration = this.rsvpCounts.generation();
+        RSVPAdmission admission = this.rsvpRepository.admitRSVP(rsvp);
+        if (admission.getStatus() == RSVPAdmission.Status.ADMITTED) {
+            this.rsvpCounts.admitted(rsvp.getEventId(), admission.getCurrentCount(), countGeneration);
+        }
+        return admission;
+    }
+
+    // Null when the event is not in flash signup mode and has to go through admitRSVP
+    public SignupTicket submitFlashSignup(RSVP rsvp) {
+        if (rsvp.getRegistrationDate() == null) {
+            rsvp.setRegistrationDate(LocalDateTime.now());
+        }
+
+        return this.flashSignupQueue.submit(rsvp);
+    }
+
+    // Null when the user is already waiting for, or already registered for, this event
+    public WaitlistEntry joinWaitlist(RSVP rsvp) {
+        WaitlistEntry entry = this.waitlistRepository.addEntry(
+                new WaitlistEntry(null, rsvp.getUserIdentifier(), rsvp.getEventId(), LocalDateTime.now()));
+        if (entry != null) {
+            // A seat may have been freed between the FULL answer and the insert
+            this.waitlistPromoter.signal(rsvp.getEventId());
+        }
+        return entry;
+    }
+
+    public WaitlistEntry findWaitlistEntry(Integer eventId, String userIdentifier) {
+        return this.waitlistRepository.findEntry(eventId, userIdentifier);
+    }
+
+    public List<WaitlistEntry> findWaitlist(Integer eventId) {
+        return this.waitlistRepository.findEntriesByEventId(eventId);
+    }
+
+    public boolean leaveWaitlist(Integer eventId, String userIdentifier) {
+        return this.waitlistRepository.deleteEntry(eventId, userIdentifier);
+    }
+
+    // The freed seat is handed to the waitlist by the promoter thread, so cancelling stays a single short transaction
+    public boolean cancelRSVP(Integer eventId, String userIdentifier) {
+        if (!this.rsvpRepository.deleteRSVPByUserAndEvent(userIdentifier, eventId)) {
+            return false;
+        }
+        this.rsvpCounts.invalidate(eventId);
+        this.flashSignupQueue.seatReleased(eventId, userIdentifier);
+        this.waitlistPromoter.signal(eventId);
+        return true;
+    }
+
+    public SignupTicket findSignupTicket(String ticketId) {
+        return this.flashSignupQueue.findTicket(ticketId);
+    }
+
+    public FlashSignupStatus enableFlashSignup(Integer eventId) {
+        return this.flashSignupQueue.enable(eventId);
+    }
+
+    public FlashSignupStatus disableFlashSignup(Integer eventId) {
+        FlashSignupStatus status = this.flashSignupQueue.disable(eventId);
+        this.waitlistPromoter.signal(eventId);
+        return status;
+    }
+
+    public FlashSignupStatus getFlashSignupStatus(Integer eventId) {
+        return this.flashSignupQueue.status(eventId);
     }
 
     public boolean existsById(Integer id) {
@@ -34,7 +135,19 @@ public class RSVPService {
     }
 
     public int getRSVPCount(Integer eventId) {
-        return this.rsvpRepository.countRSVPsByEventId(eventId);
+        return this.rsvpCounts.get(eventId);
+    }
+
+    public Map<String, Object> getEventRSVPStatus(Event event) {
+        int currentCount = this.getRSVPCount(event.getId());
+        Map<String, Object> status = new HashMap<>();
+        status.put("eventId", event.getId());
+        status.put("currentCount", currentCount);
+        status.put("maxCapacity", event.getMaxCapacity());
+        status.put("canRegister", event.getMaxCapacity() == null || currentCount < event.getMaxCapacity());
+        status.put("isFull", event.getMaxCapacity() != null && currentCount >= event.getMaxCapacity());
+        status.put("hasCapacityLimit", event.getMaxCapacity() != null && event.getMaxCapacity() > 0);
+        return status;
     }
 
     public List<RSVP> findRSVPsByEventId(Integer eventId) {
@@ -45,6 +158,12 @@ public class RSVPService {
         return this.rsvpRepository.findRSVPsByEventIdPaginated(eventId, offset, limit);
     }
 
+    public CursorPage<RSVP> findRSVPsByEventIdPage(Integer eventId, Cursor cursor, int limit) {
+        int pageSize = Math.max(1, limit);
+        List<RSVP> rows = this.rsvpRepository.findRSVPsByEventIdAfter(eventId, cursor, pageSize + 1);
+        return CursorPage.of(rows, pageSize, rsvp -> new Cursor(rsvp.getRegistrationDate(), rsvp.getId()));
+    }
+
     public boolean isUserRegistered(String userIdentifier, Integer eventId) {
         return this.rsvpRepository.isUserRegistered(userIdentifier, eventId);
     }
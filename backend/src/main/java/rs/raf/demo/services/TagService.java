@@ -1,12 +1,18 @@
 package rs.raf.demo.services;
 
 import rs.raf.demo.entities.Tag;
+import rs.raf.demo.repositories.UnitOfWork;
 import rs.raf.demo.repositories.tag.TagRepository;
 import rs.raf.demo.repositories.eventTag.EventTagRepository;
+import rs.raf.demo.search.TagSimilarityIndex;
 
 import javax.inject.Inject;
+import java.util.Collection;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 public class TagService {
 
@@ -20,6 +26,9 @@ public class TagService {
     @Inject
     private EventTagRepository eventTagRepository;
 
+    @Inject
+    private TagSimilarityIndex similarityIndex;
+
     public Tag addTag(Tag tag) {
         return this.tagRepository.addTag(tag);
     }
@@ -48,6 +57,10 @@ public class TagService {
         return this.tagRepository.findTagsByEventId(eventId);
     }
 
+    public Map<Integer, List<Tag>> getTagsForEvents(Collection<Integer> eventIds) {
+        return this.tagRepository.findTagsByEventIds(eventIds);
+    }
+
     public List<Tag> findOrCreateTags(String tagsString) {
         if (tagsString == null || tagsString.trim().isEmpty()) {
             return new ArrayList<>();
@@ -55,34 +68,33 @@ public class TagService {
 
         // Split by comma, hyphen, or semicolon and clean up
         String[] tagNames = tagsString.split("[,;-]");
-        List<Tag> tags = new ArrayList<>();
+        Set<String> cleanTagNames = new LinkedHashSet<>();
 
         for (String tagName : tagNames) {
             String cleanTagName = tagName.trim().toLowerCase();
             if (!cleanTagName.isEmpty()) {
-                Tag existingTag = this.findTagByName(cleanTagName);
-                if (existingTag == null) {
-                    Tag newTag = new Tag();
-                    newTag.setName(cleanTagName);
-                    existingTag = this.addTag(newTag);
-                }
-                tags.add(existingTag);
+                cleanTagNames.add(cleanTagName);
             }
         }
 
-        return tags;
+        // One lookup and at most one insert for the whole set instead of a round trip per tag
+        return this.tagRepository.findOrCreateTagsByNames(new ArrayList<>(cleanTagNames));
     }
 
     public void assignTagsToEvent(Integer eventId, List<Tag> tags) {
-        this.eventTagRepository.removeAllTagsForEvent(eventId);
-        
+        List<Integer> tagIds = new ArrayList<>();
         for (Tag tag : tags) {
-            this.eventTagRepository.addEventTag(eventId, tag.getId());
+            tagIds.add(tag.getId());
+        }
+        // Only links that actually changed are written
+        if (this.eventTagRepository.replaceEventTags(eventId, tagIds)) {
+            UnitOfWork.afterCommit(() -> this.similarityIndex.setTags(eventId, tagIds));
         }
     }
     
     public void removeTagFromEvent(Integer eventId, Integer tagId) {
         this.eventTagRepository.removeEventTag(eventId, tagId);
+        UnitOfWork.afterCommit(() -> this.similarityIndex.removeTag(eventId, tagId));
     }
     
     public boolean eventHasTag(Integer eventId, Integer tagId) {
@@ -5,18 +5,34 @@ import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.auth0.jwt.interfaces.JWTVerifier;
 import org.apache.commons.codec.digest.DigestUtils;
+import rs.raf.demo.cache.PrincipalCache;
+import rs.raf.demo.entities.Event;
 import rs.raf.demo.entities.User;
+import rs.raf.demo.repositories.UnitOfWork;
 import rs.raf.demo.repositories.user.UserRepository;
 
 import javax.inject.Inject;
+import javax.inject.Provider;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
 public class UserService {
 
+    // Both are immutable and thread safe, so every request can share them
+    private static final Algorithm ALGORITHM = Algorithm.HMAC256("secret");
+    private static final JWTVerifier VERIFIER = JWT.require(ALGORITHM).build();
+
     @Inject
     UserRepository userRepository;
 
+    @Inject
+    PrincipalCache principalCache;
+
+    // EventService depends on this service, so it is looked up lazily
+    @Inject
+    Provider<EventService> eventServiceProvider;
+
     public String login(String username, String password)
     {
         String hashedPassword = DigestUtils.sha256Hex(password);
@@ -29,21 +45,16 @@ public class UserService {
         Date issuedAt = new Date();
         Date expiresAt = new Date(issuedAt.getTime() + 24*60*60*1000);
 
-        Algorithm algorithm = Algorithm.HMAC256("secret");
-
         return JWT.create()
                 .withIssuedAt(issuedAt)
                 .withExpiresAt(expiresAt)
                 .withSubject(username)
                 .withClaim("role", user.getUserType())
-                .sign(algorithm);
+                .sign(ALGORITHM);
     }
 
     public boolean isAuthorized(String token){
-        Algorithm algorithm = Algorithm.HMAC256("secret");
-        JWTVerifier verifier = JWT.require(algorithm)
-                .build();
-        DecodedJWT jwt = verifier.verify(token);
+        DecodedJWT jwt = VERIFIER.verify(token);
 
         String username = jwt.getSubject();
 
@@ -56,6 +67,26 @@ public class UserService {
         return true;
     }
 
+    // Verifies the token and resolves its user; repeat calls with the same token are a map lookup
+    public User authenticate(String token) {
+        if (token == null) {
+            return null;
+        }
+
+        User user = this.principalCache.get(token);
+        if (user != null) {
+            return user;
+        }
+
+        long generation = this.principalCache.generation();
+        DecodedJWT jwt = VERIFIER.verify(token);
+        user = this.userRepository.findUserByEmail(jwt.getSubject());
+        if (user != null && jwt.getExpiresAt() != null) {
+            this.principalCache.put(token, user, jwt.getExpiresAt().getTime(), generation);
+        }
+        return user;
+    }
+
     public User addUser(User user) {
         if (user.getHashedPassword() != null) {
             user.setHashedPassword(DigestUtils.sha256Hex(user.getHashedPassword()));
@@ -83,6 +114,10 @@ public class UserService {
         return this.userRepository.findUser(id);
     }
 
+    public List<User> findUsersByIds(Collection<Integer> ids) {
+        return this.userRepository.findUsersByIds(ids);
+    }
+
     public User findUserByEmail(String email) {
         return this.userRepository.findUserByEmail(email);
     }
@@ -93,11 +128,22 @@ public class UserService {
                 user.setHashedPassword(DigestUtils.sha256Hex(user.getHashedPassword()));
             }
         }
-        return this.userRepository.updateUser(user);
+        User updatedUser = this.userRepository.updateUser(user);
+        UnitOfWork.afterCommit(() -> this.principalCache.invalidateUser(user.getId()));
+        return updatedUser;
     }
 
+    // The user's events go with them (ON DELETE CASCADE), so they are deleted through EventService
+    // first to keep the in-memory indexes in step, all in the same transaction as the user row
     public void deleteUser(Integer id) {
-        this.userRepository.deleteUser(id);
+        UnitOfWork.run(() -> {
+            EventService eventService = this.eventServiceProvider.get();
+            for (Event event : eventService.findEventsByAuthor(id)) {
+                eventService.deleteEvent(event.getId());
+            }
+            this.userRepository.deleteUser(id);
+            UnitOfWork.afterCommit(() -> this.principalCache.invalidateUser(id));
+        });
     }
 
     public boolean existsById(Integer id) {
@@ -124,7 +170,7 @@ public class UserService {
         User user = this.findUser(id);
         if (user != null) {
             user.setStatus("active");
-            return this.userRepository.updateUser(user);
+            return this.updateUser(user);
         }
         return null;
     }
@@ -133,7 +179,7 @@ public class UserService {
         User user = this.findUser(id);
         if (user != null && !"admin".equals(user.getUserType())) {
             user.setStatus("inactive");
-            return this.userRepository.updateUser(user);
+            return this.updateUser(user);
         }
         return null;
     }
@@ -156,6 +202,7 @@ public class UserService {
         if (user != null) {
             user.setHashedPassword(DigestUtils.sha256Hex(newPassword));
             this.userRepository.updateUser(user);
+            UnitOfWork.afterCommit(() -> this.principalCache.invalidateUser(userId));
             return true;
         }
         return false;
@@ -0,0 +1,76 @@
+package rs.raf.demo.services;
+
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
+import rs.raf.demo.config.DatabaseConfig;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Anonymous visitors carry "<id>.<hmac>" in a cookie, so no node has to hold a session to recognise them
+public class VisitorService {
+
+    public static final String COOKIE_NAME = "visitor_id";
+    public static final String VISITOR_ATTRIBUTE = "visitorId";
+    public static final String ISSUED_COOKIE_ATTRIBUTE = "issuedVisitorCookie";
+
+    private static final int COOKIE_MAX_AGE_SECONDS = 365 * 24 * 60 * 60;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final byte[] SECRET = loadSecret();
+
+    // Issues a new id when the request carried no valid cookie; the cookie filter sends it with the response
+    public String currentVisitor(HttpServletRequest request) {
+        Object visitorId = request.getAttribute(VISITOR_ATTRIBUTE);
+        if (visitorId != null) {
+            return (String) visitorId;
+        }
+
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        String issued = ENCODER.encodeToString(bytes);
+        request.setAttribute(VISITOR_ATTRIBUTE, issued);
+        request.setAttribute(ISSUED_COOKIE_ATTRIBUTE, COOKIE_NAME + "=" + issued + "." + this.sign(issued)
+                + "; Max-Age=" + COOKIE_MAX_AGE_SECONDS + "; Path=/; HttpOnly; SameSite=Lax");
+        return issued;
+    }
+
+    // Read-only lookups use this, so a first-time visitor is not handed a cookie just for asking
+    public String knownVisitor(HttpServletRequest request) {
+        return (String) request.getAttribute(VISITOR_ATTRIBUTE);
+    }
+
+    // Null for a missing, malformed or forged cookie value
+    public String verify(String cookieValue) {
+        if (cookieValue == null) {
+            return null;
+        }
+        int separator = cookieValue.indexOf('.');
+        if (separator <= 0) {
+            return null;
+        }
+        String visitorId = cookieValue.substring(0, separator);
+        byte[] expected = this.sign(visitorId).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = cookieValue.substring(separator + 1).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual) ? visitorId : null;
+    }
+
+    private String sign(String visitorId) {
+        return ENCODER.encodeToString(new HmacUtils(HmacAlgorithms.HMAC_SHA_256, SECRET).hmac(visitorId));
+    }
+
+    private static byte[] loadSecret() {
+        String secret = DatabaseConfig.getString("visitor.cookie.secret", "");
+        if (!secret.trim().isEmpty()) {
+            return secret.trim().getBytes(StandardCharsets.UTF_8);
+        }
+        // Without a configured secret, cookies only verify on this node and until it restarts
+        System.err.println("visitor.cookie.secret is not set, using a random per-process secret");
+        byte[] random = new byte[32];
+        RANDOM.nextBytes(random);
+        return random;
+    }
+}
@@ -1,5 +1,11 @@
 -- RAF Event Booker Database Schema
 -- Drop existing tables in correct order (reverse foreign key dependencies)
+DROP TABLE IF EXISTS visitor_reaction;
+DROP TABLE IF EXISTS event_visitor_sketch_daily;
+DROP TABLE IF EXISTS event_visitor_sketch;
+DROP TABLE IF EXISTS event_view_daily;
+DROP TABLE IF EXISTS rsvp_waitlist;
+DROP TABLE IF EXISTS event_rsvp_counter;
 DROP TABLE IF EXISTS rsvp;
 DROP TABLE IF EXISTS comment;
 DROP TABLE IF EXISTS event_tag;
@@ -55,7 +61,7 @@ CREATE TABLE event (
     FOREIGN KEY (category_id) REFERENCES category(id) ON DELETE RESTRICT,
     INDEX idx_author (author_id),
     INDEX idx_category (category_id),
-    INDEX idx_created_at (created_at),
+    INDEX idx_created_at (created_at, id),
     INDEX idx_event_date (event_date),
     INDEX idx_views (views),
     INDEX idx_reactions (like_count, dislike_count)
@@ -83,7 +89,7 @@ CREATE TABLE comment (
     like_count INT DEFAULT 0,
     dislike_count INT DEFAULT 0,
     FOREIGN KEY (event_id) REFERENCES event(id) ON DELETE CASCADE,
-    INDEX idx_event (event_id),
+    INDEX idx_event_created_at (event_id, created_at, id),
     INDEX idx_created_at (created_at)
 );
 
@@ -95,11 +101,66 @@ CREATE TABLE rsvp (
     registration_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (event_id) REFERENCES event(id) ON DELETE CASCADE,
     UNIQUE KEY unique_user_event (user_identifier, event_id),
-    INDEX idx_event (event_id),
+    INDEX idx_event_registration_date (event_id, registration_date, id),
     INDEX idx_user (user_identifier),
     INDEX idx_registration_date (registration_date)
 );
 
+-- Seats taken per event; RSVP admission claims a seat here with a conditional UPDATE
+CREATE TABLE event_rsvp_counter (
+    event_id INT PRIMARY KEY,
+    taken INT NOT NULL DEFAULT 0,
+    FOREIGN KEY (event_id) REFERENCES event(id) ON DELETE CASCADE
+);
+
+-- Views per event per day, written with every view flush; rolling windows are summed from these rows
+CREATE TABLE event_view_daily (
+    event_id INT NOT NULL,
+    day DATE NOT NULL,
+    views INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (event_id, day),
+    FOREIGN KEY (event_id) REFERENCES event(id) ON DELETE CASCADE,
+    INDEX idx_day_event (day, event_id, views)
+);
+
+-- HyperLogLog sketches of visitor ids (precision byte + 4096 registers); nodes merge into them, never overwrite
+CREATE TABLE event_visitor_sketch (
+    event_id INT PRIMARY KEY,
+    registers VARBINARY(4097) NOT NULL,
+    FOREIGN KEY (event_id) REFERENCES event(id) ON DELETE CASCADE
+);
+
+CREATE TABLE event_visitor_sketch_daily (
+    event_id INT NOT NULL,
+    day DATE NOT NULL,
+    registers VARBINARY(4097) NOT NULL,
+    PRIMARY KEY (event_id, day),
+    FOREIGN KEY (event_id) REFERENCES event(id) ON DELETE CASCADE,
+    INDEX idx_visitor_day (day)
+);
+
+-- What each anonymous visitor viewed, liked and disliked; mark 1 = viewed event, 2/3 = liked/disliked event,
+-- 4/5 = liked/disliked comment. No foreign key, since target_id points at an event or a comment depending on mark;
+-- deleting an event or comment removes its rows explicitly
+CREATE TABLE visitor_reaction (
+    visitor_id VARCHAR(32) NOT NULL,
+    mark TINYINT NOT NULL,
+    target_id INT NOT NULL,
+    PRIMARY KEY (visitor_id, mark, target_id),
+    INDEX idx_reaction_target (mark, target_id)
+);
+
+-- People waiting for a seat on a full event; freed seats go to the lowest id first
+CREATE TABLE rsvp_waitlist (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    user_identifier VARCHAR(255) NOT NULL,
+    event_id INT NOT NULL,
+    joined_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (event_id) REFERENCES event(id) ON DELETE CASCADE,
+    UNIQUE KEY unique_waitlist_user_event (user_identifier, event_id),
+    INDEX idx_waitlist_event (event_id, id)
+);
+
 -- Insert initial admin user (as required by specification)
 -- Password is hashed version of "admin123" - you should change this
 INSERT INTO user (email, first_name, last_name, user_type, status, hashed_password) 
@@ -320,4 +381,8 @@ INSERT INTO rsvp (user_identifier, event_id, registration_date) VALUES
 ('developer2@gmail.com', 11, '2025-07-29 14:00:00'),
 ('developer3@gmail.com', 11, '2025-07-29 15:00:00'),
 ('developer4@gmail.com', 11, '2025-07-30 09:00:00'),
-('developer5@gmail.com', 11, '2025-07-30 10:00:00');
\ No newline at end of file
+('developer5@gmail.com', 11, '2025-07-30 10:00:00');
+
+-- Seed seat counters from the sample RSVPs
+INSERT INTO event_rsvp_counter (event_id, taken)
+SELECT e.id, COUNT(r.id) FROM event e LEFT JOIN rsvp r ON r.event_id = e.id GROUP BY e.id;